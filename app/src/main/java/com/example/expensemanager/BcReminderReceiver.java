@@ -1,23 +1,16 @@
 package com.expensemanager;
 
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
-
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.NotificationManagerCompat;
 
 /**
- * Receives alarms for BC reminders and shows a notification.
+ * Receives alarms for BC reminders and shows them through ReminderNotifier.
  * Register this receiver in AndroidManifest.xml.
+ * Only alarms armed by older versions still arrive here; new ones go through ReminderScheduler.
  */
 public class BcReminderReceiver extends BroadcastReceiver {
 
-    private static final String CHANNEL_ID = "bc_reminder_channel";
-
     @Override
     public void onReceive(Context context, Intent intent) {
         String schemeId = intent.getStringExtra("schemeId");  // BC scheme id
@@ -34,40 +27,20 @@ public class BcReminderReceiver extends BroadcastReceiver {
             message = "Your BC installment is due.";
         }
 
-        createChannelIfNeeded(context);
-
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
-                .setSmallIcon(R.mipmap.ic_launcher)   // use an existing icon
-                .setContentTitle(title)
-                .setContentText(message)
-                .setAutoCancel(true)
-                .setPriority(NotificationCompat.PRIORITY_HIGH);
+        Context appContext = context.getApplicationContext();
+        ReminderNotifier.showSingle(appContext, BcStore.KIND, schemeId, title, message);
 
-        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
-        int notificationId = (int) System.currentTimeMillis();
-        manager.notify(notificationId, builder.build());
-
-        // Schedule next reminder for this BC scheme, if more installments exist
+        // Move this BC scheme onto ReminderScheduler's single alarm, which takes care of
+        // the following installments. Off the main thread, as in EmiReminderReceiver.
         if (schemeId != null) {
-            ReminderHelper.scheduleSchemeReminder(context, "BC", schemeId, hour24, minute);
-        }
-    }
-
-    private void createChannelIfNeeded(Context context) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            String name = "BC Reminders";
-            String description = "Notifications for BC installments";
-            int importance = NotificationManager.IMPORTANCE_HIGH;
-
-            NotificationChannel channel =
-                    new NotificationChannel(CHANNEL_ID, name, importance);
-            channel.setDescription(description);
-
-            NotificationManager manager =
-                    context.getSystemService(NotificationManager.class);
-            if (manager != null) {
-                manager.createNotificationChannel(channel);
-            }
+            PendingResult pending = goAsync();
+            FinanceRepository.get(appContext).execute(db -> {
+                try {
+                    ReminderScheduler.setReminder(appContext, db, BcStore.KIND, schemeId, hour24, minute);
+                } finally {
+                    pending.finish();
+                }
+            });
         }
     }
 }
@@ -20,37 +20,30 @@ public class BcStore {
         void onBcSelected(String bcId);
     }
 
-    public static class BcScheme {
-        public String name;
-        public int months;
-        public String startDate;
-        public List<String> scheduleDates = new ArrayList<>();
-        public String id = "";
-        public int paidCount = 0;
-        public String installmentType = "NONE";
-        public int fixedAmount = 0;
-        public List<Integer> monthlyAmounts = new ArrayList<>();
-
-        // which tab owns this scheme: "INCOME" or "EXPENSE"
-        public String ownerTab = "INCOME";
-
-        // optional: flags per installment if you already use them elsewhere
-        public List<Boolean> paidFlags = new ArrayList<>();
-
-        // NEW: whether reminder is enabled for this scheme
-        public boolean reminderEnabled = false;
+    public static class BcScheme extends InstallmentScheme {
+        public BcScheme() {
+            ownerTab = "INCOME";
+        }
     }
 
+    // kind value for the schemes / installments tables
+    public static final String KIND = "BC";
+
+    // Legacy storage: the whole map as one JSON string, imported once into finance.db
     private static final String PREFS_NAME = "ExpenseManagerPrefs";
     private static final String BC_KEY = "bc_data_json";
+
+    // set by the first load(); guarded by the class lock like the maps
+    private static boolean loaded = false;
+
     private static final HashMap<String, ArrayList<BcScheme>> bcMap = new HashMap<>();
 
-    public static HashMap<String, ArrayList<BcScheme>> getBcMap() {
-        return bcMap;
-    }
+    // Secondary indexes over the same scheme objects, kept in step with bcMap
+    private static final HashMap<String, BcScheme> schemesById = new HashMap<>();
+    private static final HashMap<String, ArrayList<BcScheme>> schemesByOwner = new HashMap<>();
 
     /** Get all BC schemes as a flat list (used by delete dialog) */
-    public static List<BcScheme> getAllSchemes() {
+    public static synchronized List<BcScheme> getAllSchemes() {
         List<BcScheme> all = new ArrayList<>();
         for (String key : bcMap.keySet()) {
             ArrayList<BcScheme> list = bcMap.get(key);
@@ -61,256 +54,265 @@ public class BcStore {
         return all;
     }
 
-    // Get schemes only for a given owner tab ("INCOME" or "EXPENSE")
-    public static List<BcScheme> getSchemesForOwner(String ownerTab) {
+    // Get schemes only for a given owner tab ("INCOME" or "EXPENSE").
+    // Like every getter here, the schemes returned are never modified afterwards:
+    // ticks and reminder switches swap a changed copy into the store instead.
+    public static synchronized List<BcScheme> getSchemesForOwner(String ownerTab) {
         List<BcScheme> result = new ArrayList<>();
         if (TextUtils.isEmpty(ownerTab)) return result;
-        for (String key : bcMap.keySet()) {
-            ArrayList<BcScheme> list = bcMap.get(key);
-            if (list == null) continue;
-            for (BcScheme s : list) {
-                if (ownerTab.equals(s.ownerTab)) {
-                    result.add(s);
-                }
-            }
+        ArrayList<BcScheme> list = schemesByOwner.get(ownerTab);
+        if (list != null) {
+            result.addAll(list);
         }
         return result;
     }
 
-    public static void addScheme(String key, BcScheme scheme) {
+    /** Add a new scheme under the given account key and persist it. */
+    public static synchronized void addScheme(Context context, String key, BcScheme scheme) {
+        if (TextUtils.isEmpty(scheme.id)) {
+            scheme.id = key + "|" + scheme.name;
+        }
+        // same id means same row in the schemes table: replace, don't duplicate
+        removeFromMemory(scheme.id);
+        addToMemory(key, scheme);
+        DueIndex.addScheme(KIND, scheme);
+        FinanceRepository.get(context).execute(db -> db.saveScheme(KIND, scheme));
+    }
+
+    private static void addToMemory(String key, BcScheme scheme) {
         ArrayList<BcScheme> list = bcMap.get(key);
         if (list == null) {
             list = new ArrayList<>();
             bcMap.put(key, list);
         }
-        if (TextUtils.isEmpty(scheme.id)) {
-            scheme.id = key + "|" + scheme.name;
-        }
-        // ensure paidFlags list matches schedule size
-        if (scheme.paidFlags == null) {
-            scheme.paidFlags = new ArrayList<>();
-        }
-        while (scheme.paidFlags.size() < scheme.scheduleDates.size()) {
-            scheme.paidFlags.add(false);
-        }
+        scheme.accountKey = key;
+        // one paid bit per scheduled date
+        scheme.paid.resize(scheme.schedule.length);
         // ownerTab must be set by caller (IncomeFragment / ExpensesFragment)
         list.add(scheme);
-    }
 
-    public static void removeScheme(String key, BcScheme scheme) {
-        if (scheme == null) return;
-        ArrayList<BcScheme> list = bcMap.get(key);
-        if (list != null) {
-            list.remove(scheme);
-            if (list.isEmpty()) {
-                bcMap.remove(key);
-            }
+        schemesById.put(scheme.id, scheme);
+        ArrayList<BcScheme> owned = schemesByOwner.get(scheme.ownerTab);
+        if (owned == null) {
+            owned = new ArrayList<>();
+            schemesByOwner.put(scheme.ownerTab, owned);
         }
+        owned.add(scheme);
     }
 
-    /** Remove by id anywhere in map */
-    public static void removeSchemeById(String bcId) {
+    /** Remove by id anywhere in map, and delete its rows from the database */
+    public static synchronized void removeSchemeById(Context context, String bcId) {
         if (TextUtils.isEmpty(bcId)) return;
-        for (String key : new ArrayList<>(bcMap.keySet())) {
-            ArrayList<BcScheme> list = bcMap.get(key);
-            if (list == null) continue;
-            for (int i = list.size() - 1; i >= 0; i--) {
-                BcScheme s = list.get(i);
-                if (bcId.equals(s.id)) {
-                    list.remove(i);
-                }
-            }
-            if (list.isEmpty()) {
-                bcMap.remove(key);
-            }
+        removeFromMemory(bcId);
+        FinanceRepository.get(context).execute(db -> {
+            db.deleteScheme(KIND, bcId);
+            ReminderScheduler.refresh(context.getApplicationContext(), db, KIND, bcId);
+        });
+    }
+
+    private static void removeFromMemory(String bcId) {
+        BcScheme s = schemesById.remove(bcId);
+        if (s == null) return;
+
+        DueIndex.removeScheme(KIND, bcId);
+        removeFromBucket(bcMap, s.accountKey, s);
+        removeFromBucket(schemesByOwner, s.ownerTab, s);
+    }
+
+    private static void removeFromBucket(HashMap<String, ArrayList<BcScheme>> index, String key, BcScheme s) {
+        ArrayList<BcScheme> list = index.get(key);
+        if (list == null) return;
+        list.remove(s);
+        if (list.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    // Put copy where s was in every index; s stays as it is for whoever still holds it
+    private static void replaceInMemory(BcScheme s, BcScheme copy) {
+        schemesById.put(s.id, copy);
+        replaceInBucket(bcMap, s.accountKey, s, copy);
+        replaceInBucket(schemesByOwner, s.ownerTab, s, copy);
+    }
+
+    private static void replaceInBucket(HashMap<String, ArrayList<BcScheme>> index, String key, BcScheme s, BcScheme copy) {
+        ArrayList<BcScheme> list = index.get(key);
+        if (list == null) return;
+        int at = list.indexOf(s);
+        if (at >= 0) {
+            list.set(at, copy);
         }
     }
 
+    private static BcScheme copyOf(BcScheme s) {
+        BcScheme copy = new BcScheme();
+        copy.copyFrom(s);
+        return copy;
+    }
+
     // find a scheme anywhere in the map by its id
-    public static BcScheme findSchemeById(String bcId) {
+    public static synchronized BcScheme findSchemeById(String bcId) {
         if (TextUtils.isEmpty(bcId)) return null;
-        for (String key : bcMap.keySet()) {
-            ArrayList<BcScheme> list = bcMap.get(key);
-            if (list == null) continue;
-            for (BcScheme s : list) {
-                if (bcId.equals(s.id)) {
-                    return s;
-                }
-            }
+        return schemesById.get(bcId);
+    }
+
+    /** Switch the scheme's reminder; like a tick, the store swaps in a copy with the new flag. */
+    public static synchronized void setReminderEnabled(Context context, BcScheme scheme, boolean enabled) {
+        BcScheme current = schemesById.get(scheme.id);
+        if (current != null && current.reminderEnabled != enabled) {
+            BcScheme copy = copyOf(current);
+            copy.reminderEnabled = enabled;
+            replaceInMemory(current, copy);
         }
-        return null;
+        FinanceRepository.get(context).execute(db -> {
+            db.setSchemeReminderEnabled(KIND, scheme.id, enabled);
+            ReminderScheduler.refresh(context.getApplicationContext(), db, KIND, scheme.id);
+        });
     }
 
     /**
      * Mark one installment done based on month/year.
      * month, year come from Income/Expenses EditTexts (both as strings).
+     * Memory only: returns the ticked index (or -1) so the caller can write it in the
+     * same transaction as the entry (FinanceRepository.addTransaction).
      */
-    public static void markBcInstallmentDone(String bcId, String month, String year) {
-        if (TextUtils.isEmpty(bcId) || TextUtils.isEmpty(month) || TextUtils.isEmpty(year)) return;
-        BcScheme s = findSchemeById(bcId);
-        if (s == null) return;
-
-        // ensure paidFlags list is initialized and aligned with scheduleDates
-        if (s.paidFlags == null) {
-            s.paidFlags = new ArrayList<>();
-        }
-        while (s.paidFlags.size() < s.scheduleDates.size()) {
-            s.paidFlags.add(false);
-        }
-
-        for (int i = 0; i < s.scheduleDates.size(); i++) {
-            String d = s.scheduleDates.get(i);
-            if (matchesMonthYear(d, month, year) && !s.paidFlags.get(i)) {
-                s.paidFlags.set(i, true);
-                if (s.paidCount < s.months) {
-                    s.paidCount++;
-                }
-                break;
-            }
-        }
+    public static int markBcInstallmentDone(String bcId, String month, String year) {
+        return setPaidForMonth(bcId, month, year, true);
     }
 
     /**
      * Used when deleting an entry: unmark the installment whose date has same month/year.
+     * Memory only, like markBcInstallmentDone.
      */
-    public static void unmarkBcInstallment(String bcId, String month, String year) {
-        if (TextUtils.isEmpty(bcId) || TextUtils.isEmpty(month) || TextUtils.isEmpty(year)) return;
-        BcScheme s = findSchemeById(bcId);
-        if (s == null) return;
-
-        if (s.paidFlags == null) {
-            s.paidFlags = new ArrayList<>();
-        }
-        while (s.paidFlags.size() < s.scheduleDates.size()) {
-            s.paidFlags.add(false);
-        }
+    public static int unmarkBcInstallment(String bcId, String month, String year) {
+        return setPaidForMonth(bcId, month, year, false);
+    }
 
-        for (int i = 0; i < s.scheduleDates.size(); i++) {
-            String d = s.scheduleDates.get(i);
-            if (matchesMonthYear(d, month, year) && s.paidFlags.get(i)) {
-                s.paidFlags.set(i, false);
-                if (s.paidCount > 0) {
-                    s.paidCount--;
-                }
-                break;
-            }
+    /** Put one installment's flag back in memory, e.g. after its database write rolled back. */
+    public static synchronized void setInstallmentPaid(String bcId, int index, boolean paid) {
+        BcScheme s = schemesById.get(bcId);
+        if (s != null && index < s.paid.size() && s.paid.isPaid(index) != paid) {
+            replacePaid(s, index, paid);
         }
     }
 
     /**
-     * Helper: check if stored date string has same month/year as user input.
-     * Assumes scheduleDates stored as "dd-MM-yyyy" or "dd/MM/yyyy".
-     * Works for both "2" and "02" entered in the Month box.
+     * Flip the first installment in the given month whose flag differs from {@code paid}
+     * and return its index, or -1. Works for both "2" and "02" entered in the Month box.
      */
-    private static boolean matchesMonthYear(String dateStr, String month, String year) {
-        if (TextUtils.isEmpty(dateStr) || TextUtils.isEmpty(month) || TextUtils.isEmpty(year)) {
-            return false;
-        }
-        String[] parts = dateStr.split("[-/]");
-        if (parts.length < 3) return false;
+    private static synchronized int setPaidForMonth(String bcId, String month, String year, boolean paid) {
+        if (TextUtils.isEmpty(bcId) || TextUtils.isEmpty(month) || TextUtils.isEmpty(year)) return -1;
+        BcScheme s = findSchemeById(bcId);
+        if (s == null) return -1;
 
+        int m, y;
         try {
-            int mScheme = Integer.parseInt(parts[1]); // "12" -> 12, "02" -> 2
-            int yScheme = Integer.parseInt(parts[2]);
-            int mInput = Integer.parseInt(month);
-            int yInput = Integer.parseInt(year);
-            return mScheme == mInput && yScheme == yInput;
+            m = Integer.parseInt(month.trim());
+            y = Integer.parseInt(year.trim());
         } catch (NumberFormatException e) {
-            return false;
+            return -1;
         }
-    }
-
-    public static void save(Context context) {
-        JSONObject root = new JSONObject();
-        try {
-            for (String key : bcMap.keySet()) {
-                JSONArray arr = new JSONArray();
-                ArrayList<BcScheme> list = bcMap.get(key);
-                if (list == null) continue;
-                for (BcScheme s : list) {
-                    JSONObject o = new JSONObject();
-                    o.put("name", s.name);
-                    o.put("months", s.months);
-                    o.put("startDate", s.startDate);
-
-                    if (TextUtils.isEmpty(s.id)) {
-                        s.id = key + "|" + s.name;
-                    }
-                    o.put("id", s.id);
-
-                    JSONArray dates = new JSONArray();
-                    for (String d : s.scheduleDates) {
-                        dates.put(d);
-                    }
-                    o.put("schedule", dates);
 
-                    o.put("paidCount", s.paidCount);
-                    o.put("installmentType", s.installmentType);
-                    o.put("fixedAmount", s.fixedAmount);
+        int i = ScheduleDates.firstIndexInMonth(s.schedule, y, m);
+        if (i < 0) return -1;
+        for (; i < s.schedule.length && ScheduleDates.isInMonth(s.schedule[i], y, m); i++) {
+            if (i < s.paid.size() && s.paid.isPaid(i) != paid) {
+                replacePaid(s, i, paid);
+                return i;
+            }
+        }
+        return -1;
+    }
 
-                    JSONArray amts = new JSONArray();
-                    for (int a : s.monthlyAmounts) {
-                        amts.put(a);
-                    }
-                    o.put("monthlyAmounts", amts);
+    // Swap in a copy with installment index (un)ticked: schemes already handed out never change
+    private static void replacePaid(BcScheme s, int index, boolean paid) {
+        BcScheme copy = copyOf(s);
+        copy.paid.setPaid(index, paid);
+        replaceInMemory(s, copy);
+        DueIndex.setPaid(KIND, copy, index, paid);
+    }
 
-                    // persist owner tab
-                    o.put("ownerTab", s.ownerTab);
+    // Serialises loads; readers only take the class lock, which load() holds just for the swap
+    private static final Object LOAD_LOCK = new Object();
 
-                    // persist paidFlags to keep checkbox state
-                    JSONArray flags = new JSONArray();
-                    if (s.paidFlags != null) {
-                        for (boolean f : s.paidFlags) {
-                            flags.put(f);
-                        }
-                    }
-                    o.put("paidFlags", flags);
+    /**
+     * Hydrate from the database on first use; later calls return at once.
+     * Reads the database directly, so never call it on the main thread.
+     */
+    public static void ensureLoaded(Context context) {
+        if (isLoaded()) return;
+        synchronized (LOAD_LOCK) {
+            if (!isLoaded()) {
+                load(context);
+            }
+        }
+    }
 
-                    // NEW: save reminder flag
-                    o.put("reminderEnabled", s.reminderEnabled);
+    /** False until the first load(); findSchemeById() is meaningless before that. */
+    public static synchronized boolean isLoaded() {
+        return loaded;
+    }
 
-                    arr.put(o);
+    // Reads the database directly: call from FinanceRepository's write thread.
+    // The reads run without the class lock so UI lookups never wait on disk.
+    public static void load(Context context) {
+        DatabaseHelper db = DatabaseHelper.getInstance(context);
+        importLegacyPrefs(context, db);
+        List<BcScheme> stored = db.getSchemes(KIND, BcScheme::new);
+
+        synchronized (BcStore.class) {
+            // Schemes added meanwhile have their save queued behind this load: keep them
+            List<BcScheme> added = getAllSchemes();
+            bcMap.clear();
+            schemesById.clear();
+            schemesByOwner.clear();
+            for (BcScheme s : stored) {
+                addToMemory(s.accountKey, s);
+            }
+            for (BcScheme s : added) {
+                if (!schemesById.containsKey(s.id)) {
+                    addToMemory(s.accountKey, s);
                 }
-                root.put(key, arr);
             }
-        } catch (JSONException e) {
-            e.printStackTrace();
+            DueIndex.replaceKind(KIND, getAllSchemes());
+            loaded = true;
         }
-
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        prefs.edit().putString(BC_KEY, root.toString()).apply();
     }
 
-    public static void load(Context context) {
-        bcMap.clear();
+    /**
+     * One-time move of the old bc_data_json prefs blob into the schemes/installments tables.
+     * The prefs key is only removed after every scheme was parsed and written.
+     */
+    private static void importLegacyPrefs(Context context, DatabaseHelper db) {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         String json = prefs.getString(BC_KEY, "");
         if (TextUtils.isEmpty(json)) return;
 
+        List<BcScheme> imported = new ArrayList<>();
         try {
             JSONObject root = new JSONObject(json);
             Iterator<String> keys = root.keys();
             while (keys.hasNext()) {
                 String key = keys.next();
                 JSONArray arr = root.getJSONArray(key);
-                ArrayList<BcScheme> list = new ArrayList<>();
                 for (int i = 0; i < arr.length(); i++) {
                     JSONObject o = arr.getJSONObject(i);
                     BcScheme s = new BcScheme();
+                    s.accountKey = key;
                     s.name = o.optString("name");
                     s.months = o.optInt("months");
                     s.startDate = o.optString("startDate");
                     s.id = o.optString("id", key + "|" + s.name);
 
-                    s.scheduleDates = new ArrayList<>();
                     JSONArray dates = o.optJSONArray("schedule");
                     if (dates != null) {
+                        s.schedule = new int[dates.length()];
                         for (int j = 0; j < dates.length(); j++) {
-                            s.scheduleDates.add(dates.getString(j));
+                            s.schedule[j] = ScheduleDates.parse(dates.getString(j));
                         }
                     }
 
-                    s.paidCount = o.optInt("paidCount", 0);
+                    int legacyPaidCount = o.optInt("paidCount", 0);
                     s.installmentType = o.optString("installmentType", "NONE");
                     s.fixedAmount = o.optInt("fixedAmount", 0);
                     s.monthlyAmounts = new ArrayList<>();
@@ -325,28 +327,34 @@ public class BcStore {
                     s.ownerTab = o.optString("ownerTab", "INCOME");
 
                     // load paidFlags if present; otherwise initialize from paidCount
-                    s.paidFlags = new ArrayList<>();
+                    s.paid.resize(s.schedule.length);
                     JSONArray flags = o.optJSONArray("paidFlags");
                     if (flags != null) {
                         for (int j = 0; j < flags.length(); j++) {
-                            s.paidFlags.add(flags.getBoolean(j));
+                            s.paid.setPaid(j, flags.getBoolean(j));
                         }
                     } else {
                         // backward compatibility: mark first paidCount installments as true
-                        for (int j = 0; j < s.scheduleDates.size(); j++) {
-                            s.paidFlags.add(j < s.paidCount);
+                        for (int j = 0; j < legacyPaidCount; j++) {
+                            s.paid.setPaid(j, true);
                         }
                     }
 
-                    // NEW: load reminder flag (default false for old data)
+                    // old schedules may hold unparseable or out-of-order dates
+                    s.normalizeSchedule();
+
+                    // load reminder flag (default false for old data)
                     s.reminderEnabled = o.optBoolean("reminderEnabled", false);
 
-                    list.add(s);
+                    imported.add(s);
                 }
-                bcMap.put(key, list);
             }
         } catch (JSONException e) {
             e.printStackTrace();
+            return;
         }
+
+        db.saveSchemes(KIND, imported);
+        prefs.edit().remove(BC_KEY).apply();
     }
 }
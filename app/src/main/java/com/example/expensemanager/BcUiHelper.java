@@ -20,8 +20,6 @@ import android.graphics.Color;
 
 import androidx.fragment.app.Fragment;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -318,8 +316,7 @@ public class BcUiHelper {
                     }
 
                     String key = TextUtils.isEmpty(accountName) ? "_GLOBAL_" : accountName;
-                    BcStore.addScheme(key, scheme);
-                    BcStore.save(ctx);
+                    BcStore.addScheme(ctx, key, scheme);
 
                     if (listener != null) listener.onBcAdded();
                     Toast.makeText(ctx, "BC added", Toast.LENGTH_SHORT).show();
@@ -328,18 +325,18 @@ public class BcUiHelper {
     }
 
     public static void generateBcSchedule(BcScheme scheme) {
-        scheme.scheduleDates.clear();
-        SimpleDateFormat df = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-        Calendar c = Calendar.getInstance();
-        try {
-            c.setTime(df.parse(scheme.startDate));
-        } catch (ParseException e) {
+        int start = ScheduleDates.parse(scheme.startDate);
+        if (start == 0) {
+            scheme.schedule = new int[0];
             return;
         }
-        for (int i = 0; i < scheme.months; i++) {
-            scheme.scheduleDates.add(df.format(c.getTime()));
+        Calendar c = ScheduleDates.toCalendar(start);
+        int[] keys = new int[Math.max(scheme.months, 0)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ScheduleDates.fromCalendar(c);
             c.add(Calendar.MONTH, 1);
         }
+        scheme.schedule = keys;
     }
 
     // BC list: ONLY scheme buttons, no toggle here
@@ -408,8 +405,7 @@ public class BcUiHelper {
         toggle.setShowText(false);
 
         toggle.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            scheme.reminderEnabled = isChecked;
-            BcStore.save(ctx);
+            BcStore.setReminderEnabled(ctx, scheme, isChecked);
         });
 
         reminderLayout.addView(tvReminder);
@@ -437,11 +433,9 @@ public class BcUiHelper {
         table.addView(header);
 
         // ===== ROWS =====
-        for (int i = 0; i < scheme.scheduleDates.size(); i++) {
+        for (int i = 0; i < scheme.schedule.length; i++) {
 
-            boolean done = scheme.paidFlags != null
-                    && i < scheme.paidFlags.size()
-                    && scheme.paidFlags.get(i);
+            boolean done = scheme.paid.isPaid(i);
 
             int amount = 0;
             if ("FIXED".equals(scheme.installmentType)) {
@@ -456,7 +450,7 @@ public class BcUiHelper {
 
             row.addView(createCell(ctx, String.valueOf(i + 1), cellPad, done));
             row.addView(createCell(ctx, done ? "✅" : "☐", cellPad, done));
-            row.addView(createCell(ctx, scheme.scheduleDates.get(i), cellPad, done));
+            row.addView(createCell(ctx, ScheduleDates.format(scheme.schedule[i]), cellPad, done));
             row.addView(createCell(ctx, String.valueOf(amount), cellPad, done));
 
             table.addView(row);
@@ -1,49 +1,296 @@
 package com.expensemanager;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.content.ContentValues;
 import android.database.Cursor;
 
 import com.github.mikephil.charting.data.BarEntry;
 
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.Date;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "finance.db";
-    // Bumped to 4 because schema changes (added source_type)
-    private static final int DATABASE_VERSION = 4;
+    // 4: added source_type
+    // 5: INTEGER year/month, created_at epoch millis, covering indexes
+    // 6: monthly_rollup table kept in sync by triggers
+    // 7: schemes/installments tables (BC and EMI moved out of SharedPreferences)
+    // 8: (date, id) index for keyset-paginated browsing
+    // 9: categories dictionary kept in sync by triggers
+    // 10: amounts and rollup totals as INTEGER paise
+    // 11: reminders table (reminder time per scheme)
+    // 12: reminders.next_due_key for rebuilding the alarm schedule without loading schemes
+    private static final int DATABASE_VERSION = 12;
 
-    public DatabaseHelper(Context context) {
+    // IST is UTC+05:30; used to turn the stored 'date' string back into epoch time
+    private static final long IST_OFFSET_SECONDS = 5 * 3600 + 30 * 60;
+
+    // SimpleDateFormat is not thread-safe, so each thread keeps its own IST formatter
+    private static final ThreadLocal<SimpleDateFormat> IST_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+            sdf.setTimeZone(TimeZone.getTimeZone("Asia/Kolkata")); // IST
+            sdf.setLenient(false);
+            return sdf;
+        }
+    };
+
+    private static final String CREATE_TRANSACTIONS =
+            "CREATE TABLE transactions (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "type TEXT, " +
+                    "amount INTEGER, " +      // paise (1/100 rupee), see Money
+                    "note TEXT, " +
+                    "month INTEGER, " +
+                    "year INTEGER, " +
+                    "category TEXT, " +
+                    "source_type TEXT, " +    // which radio (SALARY/COMMISSION/OTHER)
+                    "date TEXT, " +           // IST "yyyy-MM-dd HH:mm:ss", kept for display
+                    "created_at INTEGER)";    // same instant as epoch millis
+
+    // amount is the trailing column so SUM()/GROUP BY queries never touch the table
+    private static final String CREATE_INDEX_TYPE_PERIOD =
+            "CREATE INDEX IF NOT EXISTS idx_transactions_type_period " +
+                    "ON transactions(type, year, month, date DESC, amount)";
+    private static final String CREATE_INDEX_TYPE_CATEGORY =
+            "CREATE INDEX IF NOT EXISTS idx_transactions_type_category " +
+                    "ON transactions(type, category, amount)";
+    // Newest-first walk for forEachTransactionInPage; id breaks ties between equal dates
+    private static final String CREATE_INDEX_DATE_ID =
+            "CREATE INDEX IF NOT EXISTS idx_transactions_date_id " +
+                    "ON transactions(date DESC, id DESC)";
+
+    // One row per (type, year, month, category, source_type). NULL category/source_type
+    // are stored as '' so they still collapse onto a single primary-key row.
+    private static final String CREATE_MONTHLY_ROLLUP =
+            "CREATE TABLE IF NOT EXISTS monthly_rollup (" +
+                    "type TEXT NOT NULL, " +
+                    "year INTEGER NOT NULL, " +
+                    "month INTEGER NOT NULL, " +
+                    "category TEXT NOT NULL, " +
+                    "source_type TEXT NOT NULL, " +
+                    "total INTEGER NOT NULL DEFAULT 0, " +   // paise
+                    "count INTEGER NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (type, year, month, category, source_type))";
+
+    private static final String ROLLUP_KEY_COLUMNS =
+            "IFNULL(type, ''), IFNULL(year, 0), IFNULL(month, 0), " +
+                    "IFNULL(category, ''), IFNULL(source_type, '')";
+
+    // Triggers run inside the statement that fires them, so the rollup is updated in the
+    // same transaction as the insert/delete on transactions.
+    private static final String CREATE_ROLLUP_INSERT_TRIGGER =
+            "CREATE TRIGGER IF NOT EXISTS trg_rollup_after_insert AFTER INSERT ON transactions BEGIN " +
+                    "INSERT OR IGNORE INTO monthly_rollup " +
+                    "(type, year, month, category, source_type, total, count) VALUES (" +
+                    "IFNULL(NEW.type, ''), IFNULL(NEW.year, 0), IFNULL(NEW.month, 0), " +
+                    "IFNULL(NEW.category, ''), IFNULL(NEW.source_type, ''), 0, 0); " +
+                    "UPDATE monthly_rollup SET total = total + IFNULL(NEW.amount, 0), count = count + 1 " +
+                    "WHERE " + rollupKeyMatches("NEW") + "; " +
+                    "END";
+    private static final String CREATE_ROLLUP_DELETE_TRIGGER =
+            "CREATE TRIGGER IF NOT EXISTS trg_rollup_after_delete AFTER DELETE ON transactions BEGIN " +
+                    "UPDATE monthly_rollup SET total = total - IFNULL(OLD.amount, 0), count = count - 1 " +
+                    "WHERE " + rollupKeyMatches("OLD") + "; " +
+                    "DELETE FROM monthly_rollup WHERE count <= 0 AND " + rollupKeyMatches("OLD") + "; " +
+                    "END";
+
+    private static String rollupKeyMatches(String row) {
+        return "type = IFNULL(" + row + ".type, '') " +
+                "AND year = IFNULL(" + row + ".year, 0) " +
+                "AND month = IFNULL(" + row + ".month, 0) " +
+                "AND category = IFNULL(" + row + ".category, '') " +
+                "AND source_type = IFNULL(" + row + ".source_type, '')";
+    }
+
+    // Distinct categories per type with how often / when they were last used, so pickers
+    // never scan transactions. Rows disappear when their last entry is deleted.
+    private static final String CREATE_CATEGORIES =
+            "CREATE TABLE IF NOT EXISTS categories (" +
+                    "type TEXT NOT NULL, " +
+                    "name TEXT NOT NULL, " +
+                    "usage_count INTEGER NOT NULL DEFAULT 0, " +
+                    "last_used INTEGER NOT NULL DEFAULT 0, " +   // created_at of the newest entry
+                    "PRIMARY KEY (type, name))";
+
+    private static final String CREATE_CATEGORIES_INSERT_TRIGGER =
+            "CREATE TRIGGER IF NOT EXISTS trg_categories_after_insert AFTER INSERT ON transactions " +
+                    "WHEN NEW.category IS NOT NULL AND NEW.category <> '' BEGIN " +
+                    "INSERT OR IGNORE INTO categories (type, name) VALUES (IFNULL(NEW.type, ''), NEW.category); " +
+                    "UPDATE categories SET usage_count = usage_count + 1, " +
+                    "last_used = MAX(last_used, IFNULL(NEW.created_at, 0)) " +
+                    "WHERE type = IFNULL(NEW.type, '') AND name = NEW.category; " +
+                    "END";
+    // last_used is left as is on delete; it only orders the pickers
+    private static final String CREATE_CATEGORIES_DELETE_TRIGGER =
+            "CREATE TRIGGER IF NOT EXISTS trg_categories_after_delete AFTER DELETE ON transactions " +
+                    "WHEN OLD.category IS NOT NULL AND OLD.category <> '' BEGIN " +
+                    "UPDATE categories SET usage_count = usage_count - 1 " +
+                    "WHERE type = IFNULL(OLD.type, '') AND name = OLD.category; " +
+                    "DELETE FROM categories WHERE usage_count <= 0 " +
+                    "AND type = IFNULL(OLD.type, '') AND name = OLD.category; " +
+                    "END";
+
+    // BC / EMI schemes. kind is "BC" or "EMI"; ids are only unique within a kind.
+    private static final String CREATE_SCHEMES =
+            "CREATE TABLE IF NOT EXISTS schemes (" +
+                    "kind TEXT NOT NULL, " +
+                    "id TEXT NOT NULL, " +
+                    "account_key TEXT NOT NULL, " +
+                    "name TEXT, " +
+                    "months INTEGER, " +
+                    "start_date TEXT, " +
+                    "installment_type TEXT, " +
+                    "fixed_amount INTEGER, " +
+                    "owner_tab TEXT, " +
+                    "reminder_enabled INTEGER NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (kind, id))";
+
+    // One row per scheduled installment, so ticking one is a single-row UPDATE
+    private static final String CREATE_INSTALLMENTS =
+            "CREATE TABLE IF NOT EXISTS installments (" +
+                    "kind TEXT NOT NULL, " +
+                    "scheme_id TEXT NOT NULL, " +
+                    "idx INTEGER NOT NULL, " +
+                    "due_date TEXT, " +       // dd/MM/yyyy
+                    "amount INTEGER, " +      // RANDOM installment amount, NULL otherwise
+                    "paid INTEGER NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (kind, scheme_id, idx))";
+
+    // Reminder time chosen for a scheme; read by ReminderScheduler instead of alarm extras
+    private static final String CREATE_REMINDERS =
+            "CREATE TABLE IF NOT EXISTS reminders (" +
+                    "kind TEXT NOT NULL, " +
+                    "scheme_id TEXT NOT NULL, " +
+                    "hour INTEGER NOT NULL, " +
+                    "minute INTEGER NOT NULL, " +
+                    "enabled INTEGER NOT NULL DEFAULT 1, " +
+                    "next_due_key INTEGER NOT NULL DEFAULT 0, " +   // yyyymmdd queued for, 0 = none
+                    "PRIMARY KEY (kind, scheme_id))";
+
+    // Page cache size in KiB (a negative cache_size is read as KiB rather than pages)
+    private static final int CACHE_SIZE_KIB = 4096;
+
+    private static DatabaseHelper instance;
+
+    /**
+     * One helper (and one connection pool) per process, bound to the application context.
+     * With WAL, readers on other threads keep going while a write is in progress.
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    private final CopyOnWriteArrayList<TransactionChange.Listener> changeListeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public void addChangeListener(TransactionChange.Listener listener) {
+        changeListeners.addIfAbsent(listener);
+    }
+
+    public void removeChangeListener(TransactionChange.Listener listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Changes raised inside runInTransaction() on this thread, held back until it commits
+    private final ThreadLocal<List<TransactionChange>> deferredChanges = new ThreadLocal<>();
+
+    // Called after the write has committed; listeners run on the main thread
+    private void publish(int kind, List<Transaction> rows) {
+        if (changeListeners.isEmpty() || (kind != TransactionChange.CLEARED && rows.isEmpty())) return;
+        TransactionChange change = new TransactionChange(kind, rows);
+        List<TransactionChange> deferred = deferredChanges.get();
+        if (deferred != null) {
+            deferred.add(change);
+            return;
+        }
+        post(change);
+    }
+
+    private void post(TransactionChange change) {
+        mainHandler.post(() -> {
+            for (TransactionChange.Listener listener : changeListeners) {
+                listener.onTransactionsChanged(change);
+            }
+        });
+    }
+
+    /**
+     * Run several writes as one transaction: all of them commit or none do. Change events
+     * they raise are published only after the commit, and dropped on rollback.
+     */
+    public <T> T runInTransaction(Callable<T> writes) throws Exception {
+        SQLiteDatabase db = getWritableDatabase();
+        List<TransactionChange> changes = new ArrayList<>();
+        deferredChanges.set(changes);
+        T result;
+        db.beginTransaction();
+        try {
+            result = writes.call();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            deferredChanges.remove();
+        }
+        for (TransactionChange change : changes) {
+            post(change);
+        }
+        return result;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.execSQL("PRAGMA cache_size=-" + CACHE_SIZE_KIB);
+        // NORMAL is durable across app crashes in WAL mode; only an OS crash can lose the last commit
+        db.execSQL("PRAGMA synchronous=NORMAL");
+        db.execSQL("PRAGMA temp_store=MEMORY");
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        db.execSQL(
-                "CREATE TABLE transactions (" +
-                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                        "type TEXT, " +
-                        "amount REAL, " +
-                        "note TEXT, " +
-                        "month TEXT, " +
-                        "year TEXT, " +
-                        "category TEXT, " +
-                        "source_type TEXT, " +    // which radio (SALARY/COMMISSION/OTHER)
-                        "date TEXT)"
-        );
+        db.execSQL(CREATE_TRANSACTIONS);
+        db.execSQL(CREATE_INDEX_TYPE_PERIOD);
+        db.execSQL(CREATE_INDEX_TYPE_CATEGORY);
+        db.execSQL(CREATE_INDEX_DATE_ID);
+        createMonthlyRollup(db);
+        db.execSQL(CREATE_SCHEMES);
+        db.execSQL(CREATE_INSTALLMENTS);
+        createCategories(db);
+        db.execSQL(CREATE_REMINDERS);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Simple migration: if coming from version < 4, add source_type column
+        // Steps run in order inside the single transaction SQLiteOpenHelper opens for onUpgrade
         if (oldVersion < 4) {
             try {
                 db.execSQL("ALTER TABLE transactions ADD COLUMN source_type TEXT");
@@ -51,69 +298,257 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 // If column already exists, ignore
             }
         }
+        if (oldVersion < 5) {
+            migrateToV5(db);
+        }
+        if (oldVersion < 6) {
+            createMonthlyRollup(db);
+            rebuildMonthlyRollup(db);
+        }
+        if (oldVersion < 7) {
+            // Rows are imported from the old prefs JSON by BcStore/EmiStore on first load
+            db.execSQL(CREATE_SCHEMES);
+            db.execSQL(CREATE_INSTALLMENTS);
+        }
+        if (oldVersion < 8) {
+            db.execSQL(CREATE_INDEX_DATE_ID);
+        }
+        if (oldVersion < 9) {
+            createCategories(db);
+            db.execSQL(
+                    "INSERT INTO categories (type, name, usage_count, last_used) " +
+                            "SELECT IFNULL(type, ''), category, COUNT(*), MAX(IFNULL(created_at, 0)) " +
+                            "FROM transactions WHERE category IS NOT NULL AND category <> '' " +
+                            "GROUP BY IFNULL(type, ''), category");
+        }
+        if (oldVersion < 10) {
+            migrateToV10(db);
+        }
+        if (oldVersion < 11) {
+            // Reminders armed before this version are picked up when their old alarm fires
+            db.execSQL(CREATE_REMINDERS);
+        } else if (oldVersion < 12) {
+            db.execSQL("ALTER TABLE reminders ADD COLUMN next_due_key INTEGER NOT NULL DEFAULT 0");
+        }
+    }
+
+    /**
+     * v10: rupee REAL amounts become INTEGER paise. A REAL column would turn the integers
+     * back into floating point, so transactions and monthly_rollup are rebuilt with INTEGER
+     * columns; the rollup is recomputed from the converted rows.
+     */
+    private void migrateToV10(SQLiteDatabase db) {
+        // Renaming moves the rollup/categories triggers onto the old table; they go with the DROP
+        db.execSQL("ALTER TABLE transactions RENAME TO transactions_v9");
+        db.execSQL(CREATE_TRANSACTIONS);
+        db.execSQL(
+                "INSERT INTO transactions " +
+                        "(id, type, amount, note, month, year, category, source_type, date, created_at) " +
+                        "SELECT id, type, CAST(ROUND(amount * 100) AS INTEGER), note, " +
+                        "month, year, category, source_type, date, created_at " +
+                        "FROM transactions_v9"
+        );
+        db.execSQL("DROP TABLE transactions_v9");
+        db.execSQL(CREATE_INDEX_TYPE_PERIOD);
+        db.execSQL(CREATE_INDEX_TYPE_CATEGORY);
+        db.execSQL(CREATE_INDEX_DATE_ID);
+
+        db.execSQL("DROP TABLE IF EXISTS monthly_rollup");
+        createMonthlyRollup(db);
+        rebuildMonthlyRollup(db);
+        createCategories(db);   // table is kept, only the triggers are re-created
+    }
+
+    private void createCategories(SQLiteDatabase db) {
+        db.execSQL(CREATE_CATEGORIES);
+        db.execSQL(CREATE_CATEGORIES_INSERT_TRIGGER);
+        db.execSQL(CREATE_CATEGORIES_DELETE_TRIGGER);
+    }
+
+    /**
+     * v5: SQLite cannot change a column type in place, so the table is rebuilt with
+     * INTEGER year/month and a created_at epoch column, then the old rows are copied over.
+     */
+    private void migrateToV5(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE transactions RENAME TO transactions_v4");
+        db.execSQL(CREATE_TRANSACTIONS);
+        db.execSQL(
+                "INSERT INTO transactions " +
+                        "(id, type, amount, note, month, year, category, source_type, date, created_at) " +
+                        "SELECT id, type, amount, note, " +
+                        "CAST(month AS INTEGER), CAST(year AS INTEGER), " +
+                        "category, source_type, date, " +
+                        "(CAST(strftime('%s', date) AS INTEGER) - " + IST_OFFSET_SECONDS + ") * 1000 " +
+                        "FROM transactions_v4"
+        );
+        db.execSQL("DROP TABLE transactions_v4");
+        db.execSQL(CREATE_INDEX_TYPE_PERIOD);
+        db.execSQL(CREATE_INDEX_TYPE_CATEGORY);
+    }
+
+    private void createMonthlyRollup(SQLiteDatabase db) {
+        db.execSQL(CREATE_MONTHLY_ROLLUP);
+        db.execSQL(CREATE_ROLLUP_INSERT_TRIGGER);
+        db.execSQL(CREATE_ROLLUP_DELETE_TRIGGER);
+    }
+
+    /**
+     * Recompute monthly_rollup from scratch out of the raw transactions table.
+     * Publishes CLEARED, since any aggregate on screen may have changed.
+     */
+    public void rebuildMonthlyRollup() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            rebuildMonthlyRollup(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        publish(TransactionChange.CLEARED, Collections.emptyList());
+    }
+
+    private void rebuildMonthlyRollup(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM monthly_rollup");
+        db.execSQL(
+                "INSERT INTO monthly_rollup (type, year, month, category, source_type, total, count) " +
+                        "SELECT " + ROLLUP_KEY_COLUMNS + ", IFNULL(SUM(amount), 0), COUNT(*) " +
+                        "FROM transactions GROUP BY " + ROLLUP_KEY_COLUMNS
+        );
+    }
+
+    /**
+     * Compare monthly_rollup with a fresh GROUP BY over transactions.
+     * Returns true when both directions of the EXCEPT are empty.
+     */
+    public boolean verifyMonthlyRollup() {
+        String rollup = "SELECT type, year, month, category, source_type, total, count " +
+                "FROM monthly_rollup";
+        String fresh = "SELECT " + ROLLUP_KEY_COLUMNS + ", IFNULL(SUM(amount), 0), COUNT(*) " +
+                "FROM transactions GROUP BY " + ROLLUP_KEY_COLUMNS;
+
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery(
+                "SELECT (SELECT COUNT(*) FROM (" + rollup + " EXCEPT " + fresh + ")) + " +
+                        "(SELECT COUNT(*) FROM (" + fresh + " EXCEPT " + rollup + "))",
+                null);
+        long mismatches = 0;
+        if (cursor.moveToFirst()) {
+            mismatches = cursor.getLong(0);
+        }
+        cursor.close();
+        return mismatches == 0;
+    }
+
+    /**
+     * Rebuild monthly_rollup only if verifyMonthlyRollup() finds it out of step with the
+     * entries. Call on FinanceRepository's write thread, so no write lands in between.
+     * Returns true when a rebuild was needed.
+     */
+    public boolean repairMonthlyRollup() {
+        if (verifyMonthlyRollup()) return false;
+        rebuildMonthlyRollup();
+        return true;
     }
 
-    // New main insert: includes category and sourceType (radio)
+    // New main insert: includes category and sourceType (radio). amount is in paise.
     public void insertTransaction(String type,
-                                  double amount,
+                                  long amount,
                                   String note,
                                   String month,
                                   String year,
                                   String category,
                                   String sourceType) {
+        insertTransactions(Collections.singletonList(
+                new Transaction(type, amount, note, month, year, category, null, sourceType)));
+    }
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO transactions (type, amount, note, month, year, category, source_type, date, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Insert many entries with one compiled statement in a single transaction (one journal
+     * commit for the whole batch). A null/empty Transaction.date means "now"; otherwise it
+     * must be IST "yyyy-MM-dd HH:mm:ss", e.g. rows from a bank statement import.
+     * Returns the number of rows inserted and publishes them as one INSERTED change.
+     */
+    public int insertTransactions(List<Transaction> txns) {
+        if (txns == null || txns.isEmpty()) return 0;
+        SimpleDateFormat ist = IST_FORMAT.get();
+        long now = System.currentTimeMillis();
+        String nowText = ist.format(new Date(now));
+
+        List<Transaction> inserted = new ArrayList<>(txns.size());
         SQLiteDatabase db = getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put("type", type);
-        values.put("amount", amount);
-        values.put("note", note != null ? note : "");
-        values.put("month", month);
-        values.put("year", year);
-        values.put("category", category);
-        values.put("source_type", sourceType); // may be null
+        db.beginTransaction();
+        SQLiteStatement insert = null;
+        try {
+            // Compiled inside the try, so a failure here still ends the transaction
+            insert = db.compileStatement(INSERT_TRANSACTION_SQL);
+            for (Transaction t : txns) {
+                String date = nowText;
+                long createdAt = now;
+                if (t.date != null && !t.date.isEmpty()) {
+                    try {
+                        createdAt = ist.parse(t.date).getTime();
+                        date = t.date;
+                    } catch (ParseException e) {
+                        // unreadable date: stamp the row with the current time instead
+                    }
+                }
 
-        // Use device time in IST for 'date'
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", java.util.Locale.US);
-        sdf.setTimeZone(TimeZone.getTimeZone("Asia/Kolkata")); // IST
-        String now = sdf.format(new Date());
-        values.put("date", now);
+                insert.clearBindings();
+                bindStringOrNull(insert, 1, t.type);
+                insert.bindLong(2, t.amount);
+                insert.bindString(3, t.note != null ? t.note : "");
+                int month = parseIntOrZero(t.month);
+                int year = parseIntOrZero(t.year);
+                insert.bindLong(4, month);
+                insert.bindLong(5, year);
+                bindStringOrNull(insert, 6, t.category);
+                bindStringOrNull(insert, 7, t.sourceType); // may be null
+                insert.bindString(8, date);
+                insert.bindLong(9, createdAt);
+                long id = insert.executeInsert();
+                if (id != -1) {
+                    inserted.add(new Transaction(id, t.type, t.amount, t.note, String.valueOf(month),
+                            String.valueOf(year), t.category, date, t.sourceType));
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            if (insert != null) {
+                insert.close();
+            }
+            db.endTransaction();
+        }
+        publish(TransactionChange.INSERTED, inserted);
+        return inserted.size();
+    }
 
-        db.insert("transactions", null, values);
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
     }
 
     // Existing 6‑arg overload now calls the main insert with null sourceType
-    public void insertTransaction(String type, double amount, String note, String month, String year, String category) {
+    public void insertTransaction(String type, long amount, String note, String month, String year, String category) {
         insertTransaction(type, amount, note, month, year, category, null);
     }
 
     // Legacy 5‑arg overload – keep for old calls, default category "Other"
-    public void insertTransaction(String type, double amount, String note, String month, String year) {
+    public void insertTransaction(String type, long amount, String note, String month, String year) {
         insertTransaction(type, amount, note, month, year, "Other", null);
     }
 
     public ArrayList<Transaction> getAllTransactions(String type) {
-        ArrayList<Transaction> list = new ArrayList<>();
-        SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT * FROM transactions WHERE type=?", new String[]{type});
-        if (cursor.moveToFirst()) {
-            do {
-                long id = cursor.getLong(cursor.getColumnIndex("id"));
-                String txnType = cursor.getString(cursor.getColumnIndex("type"));
-                double amount = cursor.getDouble(cursor.getColumnIndex("amount"));
-                String note = cursor.getString(cursor.getColumnIndex("note"));
-                String month = cursor.getString(cursor.getColumnIndex("month"));
-                String year = cursor.getString(cursor.getColumnIndex("year"));
-                String category = cursor.getString(cursor.getColumnIndex("category"));
-                String sourceType = null;
-                int idxSource = cursor.getColumnIndex("source_type");
-                if (idxSource != -1) {
-                    sourceType = cursor.getString(idxSource);
-                }
-                String date = cursor.getString(cursor.getColumnIndex("date"));
-                list.add(new Transaction(id, txnType, amount, note, month, year, category, date, sourceType));
-            } while (cursor.moveToNext());
-        }
-        cursor.close();
-        return list;
+        return new ArrayList<>(queryTransactions(
+                "SELECT " + TransactionRowMapper.FULL + " FROM transactions WHERE type=?",
+                new String[]{type}));
     }
 
     /**
@@ -121,54 +556,129 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * Used by EntryDeleteHelper to show all entries with checkboxes.
      */
     public List<Transaction> getAllTransactions() {
-        List<Transaction> list = new ArrayList<>();
-        SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT * FROM transactions ORDER BY date DESC", null);
-        if (cursor.moveToFirst()) {
-            do {
-                long id = cursor.getLong(cursor.getColumnIndex("id"));
-                String type = cursor.getString(cursor.getColumnIndex("type"));
-                double amount = cursor.getDouble(cursor.getColumnIndex("amount"));
-                String note = cursor.getString(cursor.getColumnIndex("note"));
-                String month = cursor.getString(cursor.getColumnIndex("month"));
-                String year = cursor.getString(cursor.getColumnIndex("year"));
-                String category = cursor.getString(cursor.getColumnIndex("category"));
-                String sourceType = null;
-                int idxSource = cursor.getColumnIndex("source_type");
-                if (idxSource != -1) {
-                    sourceType = cursor.getString(idxSource);
-                }
-                String date = cursor.getString(cursor.getColumnIndex("date"));
-                list.add(new Transaction(id, type, amount, note, month, year, category, date, sourceType));
-            } while (cursor.moveToNext());
-        }
-        cursor.close();
-        return list;
+        return queryTransactions(
+                "SELECT " + TransactionRowMapper.FULL + " FROM transactions ORDER BY date DESC", null);
     }
 
     /**
      * NEW: delete a single transaction row by id.
      */
     public void deleteTransactionById(long id) {
+        deleteTransactions(new long[]{id});
+    }
+
+    // Ids per "id IN (...)" statement; stays well under SQLite's 999 bound-variable limit
+    private static final int DELETE_CHUNK_SIZE = 500;
+
+    /**
+     * Delete many entries in one transaction, DELETE_CHUNK_SIZE ids per statement.
+     * Returns the rows that were actually deleted (everything but date) so callers can roll
+     * back BC / EMI installments in one pass, and publishes them as one DELETED change.
+     */
+    public List<Transaction> deleteTransactions(long[] ids) {
+        List<Transaction> deleted = new ArrayList<>();
+        if (ids == null || ids.length == 0) return deleted;
+
         SQLiteDatabase db = getWritableDatabase();
-        db.delete("transactions", "id=?", new String[]{String.valueOf(id)});
+        db.beginTransaction();
+        try {
+            for (int from = 0; from < ids.length; from += DELETE_CHUNK_SIZE) {
+                int to = Math.min(from + DELETE_CHUNK_SIZE, ids.length);
+                String[] args = new String[to - from];
+                StringBuilder in = new StringBuilder("id IN (");
+                for (int i = from; i < to; i++) {
+                    args[i - from] = String.valueOf(ids[i]);
+                    in.append(i == from ? "?" : ",?");
+                }
+                in.append(')');
+                String where = in.toString();
+
+                Cursor cursor = db.rawQuery(
+                        "SELECT id, type, category, note, month, year, amount, source_type " +
+                                "FROM transactions WHERE " + where, args);
+                while (cursor.moveToNext()) {
+                    deleted.add(new Transaction(cursor.getLong(0), cursor.getString(1), cursor.getLong(6),
+                            cursor.getString(3), cursor.getString(4), cursor.getString(5),
+                            cursor.getString(2), null, cursor.getString(7)));
+                }
+                cursor.close();
+
+                db.delete("transactions", where, args);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        publish(TransactionChange.DELETED, deleted);
+        return deleted;
     }
 
-    public double getTotalByType(String type) {
+    /** Paise. */
+    public long getTotalByType(String type) {
+        SQLiteDatabase db = getReadableDatabase();
+        // Answered from monthly_rollup: one row per month/category instead of per transaction
+        Cursor cursor = db.rawQuery("SELECT SUM(total) as total FROM monthly_rollup WHERE type=?", new String[]{type});
+        long total = 0;
+        if (cursor.moveToFirst()) {
+            total = cursor.getLong(cursor.getColumnIndex("total"));
+        }
+        cursor.close();
+        return total;
+    }
+
+    /**
+     * Single SUM() over monthly_rollup. Any argument left null (or empty) is a wildcard,
+     * so e.g. sumAmount("income", null, "3", null, null) is March income across all years.
+     * Returns paise.
+     */
+    public long sumAmount(String type, String year, String month, String category, String sourceType) {
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        appendFilter(where, args, "type", type);
+        appendFilter(where, args, "year", year);
+        appendFilter(where, args, "month", month);
+        appendFilter(where, args, "category", category);
+        appendFilter(where, args, "source_type", sourceType);
+
         SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT SUM(amount) as total FROM transactions WHERE type=?", new String[]{type});
-        double total = 0;
+        Cursor cursor = db.rawQuery(
+                "SELECT SUM(total) FROM monthly_rollup" + where,
+                args.toArray(new String[0]));
+        long total = 0;
         if (cursor.moveToFirst()) {
-            total = cursor.getDouble(cursor.getColumnIndex("total"));
+            total = cursor.getLong(0);
         }
         cursor.close();
         return total;
     }
 
+    private static void appendFilter(StringBuilder where, List<String> args, String column, String value) {
+        if (value == null || value.isEmpty()) return;
+        where.append(args.isEmpty() ? " WHERE " : " AND ").append(column).append("=?");
+        args.add(value);
+    }
+
+    /**
+     * Categories used by entries of this type, most used first (then most recent).
+     * Answered from the categories table via its (type, name) key.
+     */
+    public List<String> getCategories(String type) {
+        List<String> names = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery(
+                "SELECT name FROM categories WHERE type=? ORDER BY usage_count DESC, last_used DESC",
+                new String[]{type});
+        while (cursor.moveToNext()) {
+            names.add(cursor.getString(0));
+        }
+        cursor.close();
+        return names;
+    }
+
     public List<String> getAllYears() {
         List<String> years = new ArrayList<>();
         SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT DISTINCT year FROM transactions ORDER BY year ASC", null);
+        Cursor cursor = db.rawQuery("SELECT DISTINCT year FROM monthly_rollup ORDER BY year ASC", null);
         while (cursor.moveToNext()) {
             years.add(cursor.getString(0));
         }
@@ -183,23 +693,25 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             expenseByMonth[i] = 0f;
         }
         SQLiteDatabase db = getReadableDatabase();
+        // type IN (...) lets the rollup primary key drive the scan
         Cursor cursor = db.rawQuery(
-                "SELECT month, " +
-                        "SUM(CASE WHEN type='income' THEN amount ELSE 0 END) AS income, " +
-                        "SUM(CASE WHEN type='expense' THEN amount ELSE 0 END) AS expense " +
-                        "FROM transactions WHERE year=? GROUP BY month ORDER BY CAST(month AS INTEGER)",
+                "SELECT type, month, SUM(total) AS total " +
+                        "FROM monthly_rollup WHERE type IN ('income', 'expense') AND year=? " +
+                        "GROUP BY type, month",
                 new String[]{year});
 
+        int idxType = cursor.getColumnIndex("type");
+        int idxMonth = cursor.getColumnIndex("month");
+        int idxTotal = cursor.getColumnIndex("total");
         while (cursor.moveToNext()) {
-            String monthStr = cursor.getString(cursor.getColumnIndex("month"));
-            int monthIdx = -1;
-            try {
-                monthIdx = Integer.parseInt(monthStr) - 1;
-            } catch (Exception ignored) {}
+            int monthIdx = cursor.getInt(idxMonth) - 1;
+            if (monthIdx < 0 || monthIdx >= 12) continue;
 
-            if (monthIdx >= 0 && monthIdx < 12) {
-                incomeByMonth[monthIdx] = (float) cursor.getDouble(cursor.getColumnIndex("income"));
-                expenseByMonth[monthIdx] = (float) cursor.getDouble(cursor.getColumnIndex("expense"));
+            float total = Money.toChartValue(cursor.getLong(idxTotal));
+            if ("income".equals(cursor.getString(idxType))) {
+                incomeByMonth[monthIdx] = total;
+            } else {
+                expenseByMonth[monthIdx] = total;
             }
         }
         cursor.close();
@@ -209,15 +721,15 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public void getGroupedMonthlyEntries(ArrayList<BarEntry> incomeEntries, ArrayList<BarEntry> expenseEntries, ArrayList<String> monthLabels, String year) {
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = db.rawQuery(
-                "SELECT month, SUM(CASE WHEN type='income' THEN amount ELSE 0 END) AS income, " +
-                        "SUM(CASE WHEN type='expense' THEN amount ELSE 0 END) AS expense " +
-                        "FROM transactions WHERE year=? GROUP BY month ORDER BY CAST(month AS INTEGER)",
+                "SELECT month, SUM(CASE WHEN type='income' THEN total ELSE 0 END) AS income, " +
+                        "SUM(CASE WHEN type='expense' THEN total ELSE 0 END) AS expense " +
+                        "FROM monthly_rollup WHERE year=? GROUP BY month ORDER BY month",
                 new String[]{year});
         int i = 0;
         while (cursor.moveToNext()) {
             String month = cursor.getString(cursor.getColumnIndex("month"));
-            float income = (float) cursor.getDouble(cursor.getColumnIndex("income"));
-            float expense = (float) cursor.getDouble(cursor.getColumnIndex("expense"));
+            float income = Money.toChartValue(cursor.getLong(cursor.getColumnIndex("income")));
+            float expense = Money.toChartValue(cursor.getLong(cursor.getColumnIndex("expense")));
             incomeEntries.add(new BarEntry(i, income));
             expenseEntries.add(new BarEntry(i, expense));
             monthLabels.add(month);
@@ -231,38 +743,457 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
-    // Grouped by month, including category and source_type
+    /**
+     * Stream matching entries to visitor one row at a time instead of building a list.
+     * A single Transaction is refilled for every row and the cursor pages through its
+     * window, so memory stays flat however many rows match. The row must not be kept past
+     * accept(): copy it with new Transaction(row) if needed.
+     *
+     * projection is TransactionRowMapper.FULL, LITE or any column list including id;
+     * selection (with ? args) and orderBy are SQL fragments and may be null, and orderBy
+     * may end in a LIMIT. Returns the number of rows visited.
+     */
+    public int forEachTransaction(String projection, String selection, String[] selectionArgs,
+                                  String orderBy, Consumer<Transaction> visitor) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(projection).append(" FROM transactions");
+        if (selection != null) sql.append(" WHERE ").append(selection);
+        if (orderBy != null) sql.append(" ORDER BY ").append(orderBy);
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql.toString(), selectionArgs);
+        try {
+            TransactionRowMapper mapper = new TransactionRowMapper(cursor);
+            Transaction row = new Transaction(0L, null, 0, null, null, null, null, null, null);
+            int count = 0;
+            while (cursor.moveToNext()) {
+                mapper.fill(cursor, row);
+                visitor.accept(row);
+                count++;
+            }
+            return count;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Stream one page of entries, newest first, for browsing large histories.
+     * Keyset pagination: pass the date/id of the last row of the previous page
+     * (null beforeDate for the first page), so each page is an index seek instead of
+     * an OFFSET scan over everything already shown. filter is a type ("income" /
+     * "expense") or null for both. Rows go through forEachTransaction.
+     */
+    public int forEachTransactionInPage(String projection, String beforeDate, long beforeId, int limit,
+                                        String filter, Consumer<Transaction> visitor) {
+        StringBuilder selection = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        if (beforeDate != null) {
+            // same as (date, id) < (beforeDate, beforeId), written so date <= ? is an index seek
+            selection.append("date <= ? AND (date < ? OR id < ?)");
+            args.add(beforeDate);
+            args.add(beforeDate);
+            args.add(String.valueOf(beforeId));
+        }
+        if (filter != null && !filter.isEmpty()) {
+            if (selection.length() > 0) selection.append(" AND ");
+            selection.append("type = ?");
+            args.add(filter);
+        }
+        return forEachTransaction(projection,
+                selection.length() > 0 ? selection.toString() : null,
+                args.toArray(new String[0]),
+                "date DESC, id DESC LIMIT " + Math.max(limit, 1),
+                visitor);
+    }
+
+    // Grouped by month; rows carry the LIST columns plus month
     public Map<String, List<Transaction>> getTransactionsByTypeAndYearGroupedByMonth(String type, String year) {
         Map<String, List<Transaction>> map = new LinkedHashMap<>();
+        List<Transaction> txns = queryTransactions(
+                "SELECT " + TransactionRowMapper.LIST + ", month FROM transactions " +
+                        "WHERE type=? AND year=? ORDER BY month, date DESC",
+                new String[]{type, year});
+        for (Transaction txn : txns) {
+            List<Transaction> forMonth = map.get(txn.month);
+            if (forMonth == null) {
+                forMonth = new ArrayList<>();
+                map.put(txn.month, forMonth);
+            }
+            forMonth.add(txn);
+        }
+        return map;
+    }
+
+    /**
+     * Entries of one type for a single (year, month), newest first, optionally of one
+     * category (null = all). Only the TransactionRowMapper.LIST columns are filled in.
+     * Served straight from idx_transactions_type_period, no sort step.
+     */
+    public List<Transaction> getTransactionsByTypeYearMonth(String type, int year, int month, String category) {
+        String sql = "SELECT " + TransactionRowMapper.LIST + " FROM transactions " +
+                "WHERE type=? AND year=? AND month=?";
+        if (category == null) {
+            return queryTransactions(sql + " ORDER BY date DESC",
+                    new String[]{type, String.valueOf(year), String.valueOf(month)});
+        }
+        return queryTransactions(sql + " AND category=? ORDER BY date DESC",
+                new String[]{type, String.valueOf(year), String.valueOf(month), category});
+    }
+
+    /**
+     * Every entry of one type and category, ordered by year, month and newest first.
+     * Found through idx_transactions_type_category (only the category's rows are read)
+     * rather than by walking each year's entries of the type. Rows carry the
+     * TransactionRowMapper.LIST columns plus year and month.
+     */
+    public List<Transaction> getTransactionsByTypeAndCategory(String type, String category) {
+        return queryTransactions(
+                "SELECT " + TransactionRowMapper.LIST + ", month, year FROM transactions " +
+                        "INDEXED BY idx_transactions_type_category " +
+                        "WHERE type=? AND category=? ORDER BY year, month, date DESC",
+                new String[]{type, category});
+    }
+
+    // Run a SELECT over transactions and map every row with one TransactionRowMapper
+    private List<Transaction> queryTransactions(String sql, String[] args) {
+        SQLiteDatabase db = getReadableDatabase();
+        return TransactionRowMapper.readAll(db.rawQuery(sql, args));
+    }
+
+    /** One row of getCategoryMonthTotals. */
+    public static final class CategoryMonthTotal {
+        public final int year;
+        public final int month;
+        public final long categoryTotal;       // paise, entries of the type + category
+        public final long sourceExpenseTotal;  // paise, expenses paid from sourceType (0 without one)
+
+        CategoryMonthTotal(int year, int month, long categoryTotal, long sourceExpenseTotal) {
+            this.year = year;
+            this.month = month;
+            this.categoryTotal = categoryTotal;
+            this.sourceExpenseTotal = sourceExpenseTotal;
+        }
+    }
+
+    /**
+     * Per (year, month) in which the category has entries: the category total and the total
+     * of expenses whose source_type is sourceType (may be null). One GROUP BY over
+     * monthly_rollup instead of two sumAmount() calls per month.
+     */
+    public List<CategoryMonthTotal> getCategoryMonthTotals(String type, String category, String sourceType) {
+        return queryCategoryMonthTotals(type, category, sourceType, 0, 0);
+    }
+
+    /**
+     * getCategoryMonthTotals() for one month: a primary-key lookup on monthly_rollup
+     * instead of every month's totals. Null when the category has no entries that month.
+     */
+    public CategoryMonthTotal getCategoryMonthTotal(String type, String category, String sourceType,
+                                                    int year, int month) {
+        List<CategoryMonthTotal> list = queryCategoryMonthTotals(type, category, sourceType, year, month);
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    // year <= 0: every month
+    private List<CategoryMonthTotal> queryCategoryMonthTotals(String type, String category, String sourceType,
+                                                              int year, int month) {
+        String inCategory = "type=? AND category=?";
+        String fromSource = "type='expense' AND source_type=?";
+        List<String> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT year, month, ")
+                .append("SUM(CASE WHEN ").append(inCategory).append(" THEN total ELSE 0 END), ");
+        Collections.addAll(args, type, category);
+        if (sourceType != null) {
+            sql.append("SUM(CASE WHEN ").append(fromSource).append(" THEN total ELSE 0 END) ");
+            args.add(sourceType);
+        } else {
+            sql.append("0 ");
+        }
+        sql.append("FROM monthly_rollup WHERE ");
+        if (year > 0) {
+            sql.append("year=? AND month=? AND ");
+            Collections.addAll(args, String.valueOf(year), String.valueOf(month));
+        }
+        sql.append("((").append(inCategory).append(')');
+        Collections.addAll(args, type, category);
+        if (sourceType != null) {
+            sql.append(" OR (").append(fromSource).append(')');
+            args.add(sourceType);
+        }
+        // months with only source expenses have no card to put a balance on
+        sql.append(") GROUP BY year, month HAVING SUM(CASE WHEN ").append(inCategory)
+                .append(" THEN count ELSE 0 END) > 0 ORDER BY year, month");
+        Collections.addAll(args, type, category);
+
+        List<CategoryMonthTotal> list = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql.toString(), args.toArray(new String[0]));
+        while (cursor.moveToNext()) {
+            list.add(new CategoryMonthTotal(cursor.getInt(0), cursor.getInt(1),
+                    cursor.getLong(2), cursor.getLong(3)));
+        }
+        cursor.close();
+        return list;
+    }
+
+    // ---- BC / EMI schemes ----
+
+    /**
+     * Load every scheme of one kind ("BC" or "EMI") together with its installments.
+     * Two queries in total, regardless of how many schemes exist.
+     */
+    public <T extends InstallmentScheme> List<T> getSchemes(String kind, Supplier<T> factory) {
+        return querySchemes(kind, null, factory);
+    }
+
+    /**
+     * Load one scheme and its installments by primary key, or null if it does not exist.
+     * For callers that need a single scheme without hydrating BcStore / EmiStore.
+     */
+    public <T extends InstallmentScheme> T getScheme(String kind, String schemeId, Supplier<T> factory) {
+        List<T> list = querySchemes(kind, schemeId, factory);
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    // schemeId == null: every scheme of the kind
+    private <T extends InstallmentScheme> List<T> querySchemes(String kind, String schemeId, Supplier<T> factory) {
+        List<T> list = new ArrayList<>();
+        Map<String, T> byId = new HashMap<>();
         SQLiteDatabase db = getReadableDatabase();
+        String[] args = schemeId == null ? new String[]{kind} : new String[]{kind, schemeId};
+
         Cursor cursor = db.rawQuery(
-                "SELECT * FROM transactions WHERE type=? AND year=? ORDER BY CAST(month AS INTEGER), date DESC",
-                new String[]{type, year});
+                "SELECT id, account_key, name, months, start_date, installment_type, " +
+                        "fixed_amount, owner_tab, reminder_enabled " +
+                        "FROM schemes WHERE kind=?" + (schemeId == null ? "" : " AND id=?") +
+                        " ORDER BY rowid",
+                args);
         while (cursor.moveToNext()) {
-            long id = cursor.getLong(cursor.getColumnIndex("id"));
-            double amount = cursor.getDouble(cursor.getColumnIndex("amount"));
-            String note = cursor.getString(cursor.getColumnIndex("note"));
-            String month = cursor.getString(cursor.getColumnIndex("month"));
-            String txnYear = cursor.getString(cursor.getColumnIndex("year"));
-            String category = cursor.getString(cursor.getColumnIndex("category"));
-            String sourceType = null;
-            int idxSource = cursor.getColumnIndex("source_type");
-            if (idxSource != -1) {
-                sourceType = cursor.getString(idxSource);
+            T s = factory.get();
+            s.id = cursor.getString(0);
+            s.accountKey = cursor.getString(1);
+            s.name = cursor.getString(2);
+            s.months = cursor.getInt(3);
+            s.startDate = cursor.getString(4);
+            s.installmentType = cursor.getString(5);
+            s.fixedAmount = cursor.getInt(6);
+            if (!cursor.isNull(7)) {
+                s.ownerTab = cursor.getString(7);
+            }
+            s.reminderEnabled = cursor.getInt(8) != 0;
+            list.add(s);
+            byId.put(s.id, s);
+        }
+        cursor.close();
+
+        cursor = db.rawQuery(
+                "SELECT scheme_id, idx, due_date, amount, paid FROM installments " +
+                        "WHERE kind=?" + (schemeId == null ? "" : " AND scheme_id=?") +
+                        " ORDER BY scheme_id, idx",
+                args);
+        // rows arrive grouped by scheme, so one growable buffer collects each schedule
+        String currentId = null;
+        T current = null;
+        int[] keys = new int[16];
+        int count = 0;
+        while (cursor.moveToNext()) {
+            String rowSchemeId = cursor.getString(0);
+            if (!rowSchemeId.equals(currentId)) {
+                finishSchedule(current, keys, count);
+                currentId = rowSchemeId;
+                current = byId.get(rowSchemeId);
+                count = 0;
             }
-            String date = cursor.getString(cursor.getColumnIndex("date"));
-            Transaction txn = new Transaction(id, type, amount, note, month, txnYear, category, date, sourceType);
-            if (!map.containsKey(month)) {
-                map.put(month, new ArrayList<>());
+            if (current == null) continue;
+            if (!cursor.isNull(2)) {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2);
+                }
+                // dd/MM/yyyy is parsed here once; everything after works on the int keys
+                keys[count++] = ScheduleDates.parse(cursor.getString(2));
+                current.paid.resize(count);
+            }
+            if (!cursor.isNull(3)) {
+                current.monthlyAmounts.add(cursor.getInt(3));
+            }
+            if (cursor.getInt(4) != 0) {
+                current.paid.setPaid(cursor.getInt(1), true);
             }
-            map.get(month).add(txn);
         }
+        finishSchedule(current, keys, count);
         cursor.close();
-        return map;
+        return list;
+    }
+
+    private static void finishSchedule(InstallmentScheme s, int[] keys, int count) {
+        if (s != null) {
+            s.schedule = Arrays.copyOf(keys, count);
+        }
+    }
+
+    /** Insert or fully replace one scheme and its installment rows. */
+    public void saveScheme(String kind, InstallmentScheme scheme) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            writeScheme(db, kind, scheme);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Same as saveScheme, for many schemes in one transaction (used by the prefs import). */
+    public void saveSchemes(String kind, List<? extends InstallmentScheme> schemes) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (InstallmentScheme s : schemes) {
+                writeScheme(db, kind, s);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void writeScheme(SQLiteDatabase db, String kind, InstallmentScheme s) {
+        ContentValues values = new ContentValues();
+        values.put("kind", kind);
+        values.put("id", s.id);
+        values.put("account_key", s.accountKey != null ? s.accountKey : "");
+        values.put("name", s.name);
+        values.put("months", s.months);
+        values.put("start_date", s.startDate);
+        values.put("installment_type", s.installmentType);
+        values.put("fixed_amount", s.fixedAmount);
+        values.put("owner_tab", s.ownerTab);
+        values.put("reminder_enabled", s.reminderEnabled ? 1 : 0);
+        db.insertWithOnConflict("schemes", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+        db.delete("installments", "kind=? AND scheme_id=?", new String[]{kind, s.id});
+        int rows = Math.max(s.schedule.length, s.monthlyAmounts.size());
+        for (int i = 0; i < rows; i++) {
+            ContentValues row = new ContentValues();
+            row.put("kind", kind);
+            row.put("scheme_id", s.id);
+            row.put("idx", i);
+            if (i < s.schedule.length) {
+                row.put("due_date", ScheduleDates.format(s.schedule[i]));
+            }
+            if (i < s.monthlyAmounts.size()) {
+                row.put("amount", s.monthlyAmounts.get(i));
+            }
+            row.put("paid", s.paid.isPaid(i) ? 1 : 0);
+            db.insert("installments", null, row);
+        }
+    }
+
+    public void deleteScheme(String kind, String schemeId) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete("installments", "kind=? AND scheme_id=?", new String[]{kind, schemeId});
+            db.delete("reminders", "kind=? AND scheme_id=?", new String[]{kind, schemeId});
+            db.delete("schemes", "kind=? AND id=?", new String[]{kind, schemeId});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Tick / untick one installment: a single-row UPDATE on the primary key. */
+    public void setInstallmentPaid(String kind, String schemeId, int index, boolean paid) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.execSQL(
+                "UPDATE installments SET paid=? WHERE kind=? AND scheme_id=? AND idx=?",
+                new Object[]{paid ? 1 : 0, kind, schemeId, index});
+    }
+
+    public void setSchemeReminderEnabled(String kind, String schemeId, boolean enabled) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.execSQL(
+                "UPDATE schemes SET reminder_enabled=? WHERE kind=? AND id=?",
+                new Object[]{enabled ? 1 : 0, kind, schemeId});
+    }
+
+    // ---- reminders ----
+
+    /** Reminder time of one scheme, as saved by ReminderScheduler. */
+    public static final class ReminderConfig {
+        public final String kind;
+        public final String schemeId;
+        public final int hour;
+        public final int minute;
+        public final int nextDueKey;    // yyyymmdd last queued, 0 = unknown / nothing left
+        public final String schemeName;
+
+        ReminderConfig(String kind, String schemeId, int hour, int minute, int nextDueKey, String schemeName) {
+            this.kind = kind;
+            this.schemeId = schemeId;
+            this.hour = hour;
+            this.minute = minute;
+            this.nextDueKey = nextDueKey;
+            this.schemeName = schemeName;
+        }
+    }
+
+    /** Set (or replace) the reminder time of a scheme and enable it. The due date is recomputed. */
+    public void saveReminder(String kind, String schemeId, int hour, int minute) {
+        ContentValues values = new ContentValues();
+        values.put("kind", kind);
+        values.put("scheme_id", schemeId);
+        values.put("hour", hour);
+        values.put("minute", minute);
+        values.put("enabled", 1);
+        getWritableDatabase().insertWithOnConflict("reminders", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Enabled reminders whose scheme still exists and has its reminder switch on.
+     * With a null schemeId every such reminder is returned, otherwise at most one.
+     */
+    public List<ReminderConfig> getActiveReminders(String kind, String schemeId) {
+        List<ReminderConfig> list = new ArrayList<>();
+        String sql = "SELECT r.kind, r.scheme_id, r.hour, r.minute, r.next_due_key, s.name FROM reminders r " +
+                "JOIN schemes s ON s.kind = r.kind AND s.id = r.scheme_id " +
+                "WHERE r.enabled = 1 AND s.reminder_enabled = 1" +
+                (schemeId == null ? "" : " AND r.kind = ? AND r.scheme_id = ?");
+        Cursor cursor = getReadableDatabase().rawQuery(sql,
+                schemeId == null ? null : new String[]{kind, schemeId});
+        while (cursor.moveToNext()) {
+            list.add(new ReminderConfig(cursor.getString(0), cursor.getString(1),
+                    cursor.getInt(2), cursor.getInt(3), cursor.getInt(4), cursor.getString(5)));
+        }
+        cursor.close();
+        return list;
+    }
+
+    /** Remember which installment date a scheme's reminder is queued for (0 = none). */
+    public void setReminderNextDue(String kind, String schemeId, int dueKey) {
+        getWritableDatabase().execSQL(
+                "UPDATE reminders SET next_due_key=? WHERE kind=? AND scheme_id=?",
+                new Object[]{dueKey, kind, schemeId});
+    }
+
+    static int parseIntOrZero(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (Exception e) {
+            return 0;
+        }
     }
 
     public void clearAllData() {
         SQLiteDatabase db = getWritableDatabase();
-        db.delete("transactions", null, null);
+        db.beginTransaction();
+        try {
+            db.delete("transactions", null, null);
+            db.delete("monthly_rollup", null, null);
+            db.delete("categories", null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        publish(TransactionChange.CLEARED, Collections.emptyList());
     }
 }
@@ -0,0 +1,249 @@
+package com.expensemanager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Every unpaid BC / EMI installment, ordered by due date, across both stores.
+ *
+ * Each installment is one long packing (epochDay, schemeRef, installmentIndex), kept in a
+ * sorted primitive array, so "what is due between two days" is a binary search plus a walk
+ * over the k hits instead of a pass over every scheme's schedule. schemeRef is a small int
+ * handed out per scheme and reused once that scheme is removed, so it never outgrows the
+ * number of live schemes. BcStore / EmiStore keep it in step: replaceKind() on load, then
+ * addScheme / removeScheme / setPaid as schemes are added, removed, ticked and unticked.
+ */
+public final class DueIndex {
+
+    /** One unpaid installment; the scheme fields are copied under the index lock. */
+    public static final class Entry {
+        public final String kind;                 // "BC" or "EMI"
+        public final String schemeId;
+        public final String schemeName;
+        public final int amount;                  // rupees, 0 when the scheme has no amounts
+        public final int index;                   // position in the scheme's schedule
+        public final int dueKey;                  // yyyymmdd (see ScheduleDates)
+        public final int epochDay;
+
+        Entry(String kind, InstallmentScheme scheme, int index, int epochDay) {
+            this.kind = kind;
+            this.schemeId = scheme.id;
+            this.schemeName = scheme.name;
+            this.amount = scheme.installmentAmount(index);
+            this.index = index;
+            this.dueKey = scheme.schedule[index];
+            this.epochDay = epochDay;
+        }
+    }
+
+    // Bit layout: epochDay | 24-bit schemeRef | 16-bit installment index
+    private static final int INDEX_BITS = 16;
+    private static final int REF_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final long REF_MASK = (1L << REF_BITS) - 1;
+    // Keeps epochDay << 40 inside a long (about ±11,000 years around 1970)
+    private static final int MIN_DAY = -(1 << 22);
+
+    private static long[] entries = new long[64];
+    private static int size = 0;
+
+    // schemeRef -> scheme and its kind; a removed scheme leaves a null slot behind
+    private static final ArrayList<InstallmentScheme> schemes = new ArrayList<>();
+    private static final ArrayList<String> kinds = new ArrayList<>();
+    private static final HashMap<String, Integer> refs = new HashMap<>();   // kind|id -> schemeRef
+
+    // Null slots handed out again before the lists grow, so refs stay below the live count
+    private static int[] freeRefs = new int[16];
+    private static int freeCount = 0;
+
+    private DueIndex() {
+    }
+
+    /** Drop every entry of this kind and index the given schemes instead (store load). */
+    public static synchronized void replaceKind(String kind, List<? extends InstallmentScheme> loaded) {
+        for (int ref = 0; ref < schemes.size(); ref++) {
+            if (kind.equals(kinds.get(ref))) {
+                release(ref);
+            }
+        }
+        removeReleased();
+        for (InstallmentScheme s : loaded) {
+            long[] unpaid = unpaidEntries(s, assignRef(kind, s));
+            ensureCapacity(size + unpaid.length);
+            System.arraycopy(unpaid, 0, entries, size, unpaid.length);
+            size += unpaid.length;
+        }
+        Arrays.sort(entries, 0, size);
+    }
+
+    /**
+     * Index a new (or replaced) scheme's unpaid installments. They are sorted on their own
+     * and merged in from the back, so only entries after the scheme's first due day move.
+     */
+    public static synchronized void addScheme(String kind, InstallmentScheme scheme) {
+        removeScheme(kind, scheme.id);
+        long[] added = unpaidEntries(scheme, assignRef(kind, scheme));
+        if (added.length == 0) return;
+        Arrays.sort(added);
+        ensureCapacity(size + added.length);
+        int i = size - 1;
+        int j = added.length - 1;
+        for (int w = size + added.length - 1; j >= 0; w--) {
+            entries[w] = i >= 0 && entries[i] > added[j] ? entries[i--] : added[j--];
+        }
+        size += added.length;
+    }
+
+    /**
+     * Drop a scheme's entries. Each installment of its schedule is looked up by binary
+     * search and the gaps are closed with one arraycopy per surviving run, instead of a
+     * pass over every entry.
+     */
+    public static synchronized void removeScheme(String kind, String schemeId) {
+        Integer ref = refs.get(kind + "|" + schemeId);
+        if (ref == null) return;
+        InstallmentScheme s = schemes.get(ref);
+        int count = Math.min(s.schedule.length, (int) INDEX_MASK + 1);
+        int[] hits = new int[count];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            if (s.schedule[i] <= 0) continue;
+            int at = Arrays.binarySearch(entries, 0, size, pack(ScheduleDates.epochDay(s.schedule[i]), ref, i));
+            if (at >= 0) {
+                hits[found++] = at;
+            }
+        }
+        release(ref);
+        if (found == 0) return;
+        Arrays.sort(hits, 0, found);
+        int write = hits[0];
+        for (int h = 0; h < found; h++) {
+            int from = hits[h] + 1;
+            int to = h + 1 < found ? hits[h + 1] : size;
+            System.arraycopy(entries, from, entries, write, to - from);
+            write += to - from;
+        }
+        size = write;
+    }
+
+    /** Keep the index in step with scheme.paid after installment {@code index} was (un)ticked. */
+    public static synchronized void setPaid(String kind, InstallmentScheme scheme, int index, boolean paid) {
+        Integer ref = refs.get(kind + "|" + scheme.id);
+        if (ref == null || index < 0 || index >= scheme.schedule.length || scheme.schedule[index] <= 0) return;
+        // The stores swap in a changed copy on every tick; keep the newest for Entry
+        schemes.set(ref, scheme);
+        long value = pack(ScheduleDates.epochDay(scheme.schedule[index]), ref, index);
+        int at = Arrays.binarySearch(entries, 0, size, value);
+        if (paid && at >= 0) {
+            System.arraycopy(entries, at + 1, entries, at, size - at - 1);
+            size--;
+        } else if (!paid && at < 0) {
+            int insert = -at - 1;
+            ensureCapacity(size + 1);
+            System.arraycopy(entries, insert, entries, insert + 1, size - insert);
+            entries[insert] = value;
+            size++;
+        }
+    }
+
+    /** Unpaid installments due on days [fromDay, toDay), earliest first. */
+    public static synchronized List<Entry> range(int fromDay, int toDay) {
+        List<Entry> result = new ArrayList<>();
+        for (int i = lowerBound(pack(Math.max(fromDay, MIN_DAY), 0, 0)); i < size; i++) {
+            long e = entries[i];
+            int day = (int) (e >> (REF_BITS + INDEX_BITS));
+            if (day >= toDay) break;
+            int ref = (int) ((e >> INDEX_BITS) & REF_MASK);
+            result.add(new Entry(kinds.get(ref), schemes.get(ref), (int) (e & INDEX_MASK), day));
+        }
+        return result;
+    }
+
+    /** Everything unpaid due before {@code toDay}: overdue installments plus the days up to toDay. */
+    public static synchronized List<Entry> dueBefore(int toDay) {
+        return range(Integer.MIN_VALUE, toDay);
+    }
+
+    // ---- internals; callers hold the class lock ----
+
+    private static long pack(int epochDay, int ref, int index) {
+        return ((long) epochDay << (REF_BITS + INDEX_BITS)) | ((long) ref << INDEX_BITS) | index;
+    }
+
+    private static int lowerBound(long value) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Reuses a released ref when there is one; -1 once REF_MASK refs are live
+    private static int assignRef(String kind, InstallmentScheme s) {
+        int ref;
+        if (freeCount > 0) {
+            ref = freeRefs[--freeCount];
+            schemes.set(ref, s);
+            kinds.set(ref, kind);
+        } else {
+            ref = schemes.size();
+            if (ref > REF_MASK) return -1;   // 16M schemes live at once
+            schemes.add(s);
+            kinds.add(kind);
+        }
+        refs.put(kind + "|" + s.id, ref);
+        return ref;
+    }
+
+    // Packed entries of the scheme's unpaid installments, in schedule order (not sorted)
+    private static long[] unpaidEntries(InstallmentScheme s, int ref) {
+        if (ref < 0) return new long[0];
+        int count = Math.min(s.schedule.length, (int) INDEX_MASK + 1);
+        long[] out = new long[count];
+        int n = 0;
+        for (int i = s.paid.nextUnpaid(); i >= 0 && i < count; i = s.paid.nextUnpaid(i + 1)) {
+            if (s.schedule[i] <= 0) continue;   // unparseable date
+            out[n++] = pack(ScheduleDates.epochDay(s.schedule[i]), ref, i);
+        }
+        return n == count ? out : Arrays.copyOf(out, n);
+    }
+
+    // Callers drop the ref's entries before anything is appended again
+    private static void release(int ref) {
+        InstallmentScheme s = schemes.get(ref);
+        if (s == null) return;
+        refs.remove(kinds.get(ref) + "|" + s.id);
+        schemes.set(ref, null);
+        kinds.set(ref, null);
+        if (freeCount == freeRefs.length) {
+            freeRefs = Arrays.copyOf(freeRefs, freeCount * 2);
+        }
+        freeRefs[freeCount++] = ref;
+    }
+
+    // Remove the entries of every ref already released (one pass, for replaceKind)
+    private static void removeReleased() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int r = (int) ((entries[i] >> INDEX_BITS) & REF_MASK);
+            if (schemes.get(r) != null) {
+                entries[kept++] = entries[i];
+            }
+        }
+        size = kept;
+    }
+
+    private static void ensureCapacity(int needed) {
+        if (needed > entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(needed, entries.length * 2));
+        }
+    }
+}
@@ -1,25 +1,44 @@
 package com.expensemanager;
 
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
 
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.NotificationManagerCompat;
+import java.util.List;
 
 /**
- * Receives alarms for EMI / BC reminders and shows a notification.
+ * Receives alarms for EMI / BC reminders and shows them through ReminderNotifier.
  * Registered in AndroidManifest.xml.
+ *
+ * ReminderScheduler's single alarm arrives here as ACTION_WAKE: everything due in that
+ * window is shown as one group per due date and the alarm is re-armed. Intents without the action
+ * are per-scheme alarms armed by older versions; they are shown as before and the scheme is
+ * handed over to the scheduler.
  */
 public class EmiReminderReceiver extends BroadcastReceiver {
 
-    private static final String CHANNEL_ID = "emi_bc_reminder_channel";
-
     @Override
     public void onReceive(Context context, Intent intent) {
+        Context appContext = context.getApplicationContext();
+
+        if (ReminderScheduler.ACTION_WAKE.equals(intent.getAction())) {
+            // Reads the database, so it runs on the repository's write thread
+            // (after any pending installment ticks) while goAsync keeps us alive
+            PendingResult pending = goAsync();
+            FinanceRepository.get(appContext).execute(db -> {
+                try {
+                    List<ReminderScheduler.Due> due =
+                            ReminderScheduler.onAlarm(appContext, db, System.currentTimeMillis());
+                    if (!due.isEmpty()) {
+                        ReminderNotifier.showDue(appContext, due);
+                    }
+                } finally {
+                    pending.finish();
+                }
+            });
+            return;
+        }
+
         // Read extras from PendingIntent
         String type = intent.getStringExtra("type");          // "BC" or "EMI"
         String schemeId = intent.getStringExtra("schemeId");  // scheme id
@@ -36,40 +55,18 @@ public class EmiReminderReceiver extends BroadcastReceiver {
             message = "Your installment is due.";
         }
 
-        createChannelIfNeeded(context);
-
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
-                .setSmallIcon(R.mipmap.ic_launcher)  // ensure this icon exists
-                .setContentTitle(title)
-                .setContentText(message)
-                .setAutoCancel(true)                  // user tap dismisses it
-                .setPriority(NotificationCompat.PRIORITY_HIGH);
-
-        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
-        int notificationId = (int) System.currentTimeMillis();
-        manager.notify(notificationId, builder.build());
+        ReminderNotifier.showSingle(appContext, type, schemeId, title, message);
 
-        // Schedule next month's reminder for this scheme (if more installments left)
+        // Move this scheme onto the scheduler's single alarm with the time it was armed for
         if (type != null && schemeId != null) {
-            ReminderHelper.scheduleSchemeReminder(context, type, schemeId, hour24, minute);
-        }
-    }
-
-    private void createChannelIfNeeded(Context context) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            String name = "EMI & BC Reminders";
-            String description = "Notifications for monthly EMI and BC installments";
-            int importance = NotificationManager.IMPORTANCE_HIGH;
-
-            NotificationChannel channel =
-                    new NotificationChannel(CHANNEL_ID, name, importance);
-            channel.setDescription(description);
-
-            NotificationManager manager =
-                    context.getSystemService(NotificationManager.class);
-            if (manager != null) {
-                manager.createNotificationChannel(channel);
-            }
+            PendingResult pending = goAsync();
+            FinanceRepository.get(appContext).execute(db -> {
+                try {
+                    ReminderScheduler.setReminder(appContext, db, type, schemeId, hour24, minute);
+                } finally {
+                    pending.finish();
+                }
+            });
         }
     }
 }
@@ -21,8 +21,6 @@ import androidx.fragment.app.Fragment;
 
 import com.expensemanager.EmiStore.EmiScheme;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -302,8 +300,7 @@ public class EmiUiHelper {
                     }
 
                     String key = TextUtils.isEmpty(accountName) ? "_GLOBAL_" : accountName;
-                    EmiStore.addScheme(key, scheme);
-                    EmiStore.save(ctx);
+                    EmiStore.addScheme(ctx, key, scheme);
 
                     if (listener != null) listener.onEmiAdded();
                     Toast.makeText(ctx, "EMI added", Toast.LENGTH_SHORT).show();
@@ -312,18 +309,18 @@ public class EmiUiHelper {
     }
 
     public static void generateEmiSchedule(EmiScheme scheme) {
-        scheme.scheduleDates.clear();
-        SimpleDateFormat df = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-        Calendar c = Calendar.getInstance();
-        try {
-            c.setTime(df.parse(scheme.startDate));
-        } catch (ParseException e) {
+        int start = ScheduleDates.parse(scheme.startDate);
+        if (start == 0) {
+            scheme.schedule = new int[0];
             return;
         }
-        for (int i = 0; i < scheme.months; i++) {
-            scheme.scheduleDates.add(df.format(c.getTime()));
+        Calendar c = ScheduleDates.toCalendar(start);
+        int[] keys = new int[Math.max(scheme.months, 0)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ScheduleDates.fromCalendar(c);
             c.add(Calendar.MONTH, 1);
         }
+        scheme.schedule = keys;
     }
 
     // EMI list: ONLY scheme buttons, no toggle here (like BC)
@@ -391,8 +388,7 @@ public class EmiUiHelper {
         toggle.setTrackResource(R.drawable.switch_track);
         toggle.setShowText(false);
         toggle.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            scheme.reminderEnabled = isChecked;
-            EmiStore.save(ctx);
+            EmiStore.setReminderEnabled(ctx, scheme, isChecked);
         });
 
         reminderLayout.addView(tvReminder);
@@ -419,10 +415,8 @@ public class EmiUiHelper {
         table.addView(header);
 
         // ===== ROWS =====
-        for (int i = 0; i < scheme.scheduleDates.size(); i++) {
-            boolean done = scheme.paidFlags != null
-                    && i < scheme.paidFlags.size()
-                    && scheme.paidFlags.get(i);
+        for (int i = 0; i < scheme.schedule.length; i++) {
+            boolean done = scheme.paid.isPaid(i);
 
             int amount = 0;
             if ("FIXED".equals(scheme.installmentType)) {
@@ -437,7 +431,7 @@ public class EmiUiHelper {
 
             row.addView(createCell(ctx, String.valueOf(i + 1), cellPad, done));
             row.addView(createCell(ctx, done ? "✅" : "☐", cellPad, done));
-            row.addView(createCell(ctx, scheme.scheduleDates.get(i), cellPad, done));
+            row.addView(createCell(ctx, ScheduleDates.format(scheme.schedule[i]), cellPad, done));
             row.addView(createCell(ctx, String.valueOf(amount), cellPad, done));
 
             table.addView(row);
@@ -2,114 +2,96 @@ package com.expensemanager;
 
 import android.app.AlertDialog;
 import android.content.Context;
-import android.widget.ArrayAdapter;
+import android.widget.AbsListView;
 import android.widget.ListView;
 import android.widget.Toast;
 
 import androidx.fragment.app.Fragment;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Shows a list of income/expense entries with checkboxes and deletes selected ones.
+ * Entries are loaded a page at a time as the list scrolls, newest first.
  */
 public class EntryDeleteHelper {
 
+    private static final String TAG_PAGE = "delete_entries_page";
+    private static final int PAGE_SIZE = 50;
+
     public static void showDeleteEntriesDialog(Fragment fragment) {
-        Context ctx = fragment.requireContext();
-        DatabaseHelper db = new DatabaseHelper(ctx);
+        // Load the first page in the background; later pages follow the scroll position
+        FinanceRepository.get(fragment.requireContext())
+                .loadTransactionsPage(TAG_PAGE, TransactionPageAdapter.PROJECTION, null, 0, PAGE_SIZE, null,
+                        TransactionPageAdapter.Row::of, FinanceRepository.callback(
+                        firstPage -> {
+                            if (!fragment.isAdded()) return;
+                            showDialog(fragment, firstPage);
+                        },
+                        e -> {
+                            if (!fragment.isAdded()) return;
+                            Toast.makeText(fragment.requireContext(), "Could not load entries",
+                                    Toast.LENGTH_SHORT).show();
+                        }));
+    }
 
-        // Load all transactions (you can filter by month/year if you want)
-        List<Transaction> all = db.getAllTransactions();
+    private static void showDialog(Fragment fragment, List<TransactionPageAdapter.Row> firstPage) {
+        Context ctx = fragment.requireContext();
+        FinanceRepository repository = FinanceRepository.get(ctx);
 
-        if (all.isEmpty()) {
+        if (firstPage.isEmpty()) {
             Toast.makeText(ctx, "No entries to delete", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        // Build display strings like "2025-12-27  |  EXPENSE  |  Note"
-        List<String> labels = new ArrayList<>();
-        for (Transaction t : all) {
-            String label = t.year + "-" + t.month + "  |  " + t.type.toUpperCase()
-                    + "  |  " + (t.note == null ? "" : t.note);
-            labels.add(label);
-        }
-
-        ArrayAdapter<String> adapter =
-                new ArrayAdapter<>(ctx, android.R.layout.simple_list_item_multiple_choice, labels);
+        TransactionPageAdapter adapter = new TransactionPageAdapter(ctx, PAGE_SIZE);
+        adapter.setPageLoader((beforeDate, beforeId) ->
+                repository.loadTransactionsPage(TAG_PAGE, TransactionPageAdapter.PROJECTION,
+                        beforeDate, beforeId, PAGE_SIZE, null, TransactionPageAdapter.Row::of,
+                        FinanceRepository.callback(page -> {
+                            if (!fragment.isAdded()) return;
+                            adapter.addPage(page);
+                        }, e -> adapter.pageFailed())));
+        adapter.addPage(firstPage);
 
         android.view.View root = android.view.LayoutInflater.from(ctx)
                 .inflate(R.layout.dialog_delete_entries, null, false);
         ListView lv = root.findViewById(R.id.lv_entries);
         lv.setAdapter(adapter);
-        lv.setChoiceMode(ListView.CHOICE_MODE_MULTIPLE);
+        // Checked state lives in the adapter (by id), not in the ListView (by position)
+        lv.setOnItemClickListener((parent, view, position, id) -> adapter.toggle(position));
+        lv.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override public void onScrollStateChanged(AbsListView view, int scrollState) {}
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                adapter.onScrolledTo(firstVisibleItem + visibleItemCount - 1);
+            }
+        });
 
         new AlertDialog.Builder(ctx)
                 .setTitle("Delete entries")
                 .setView(root)
                 .setNegativeButton("Cancel", null)
+                .setOnDismissListener(d -> repository.cancel(TAG_PAGE))
                 .setPositiveButton("Delete", (d, w) -> {
-                    // Collect checked positions
-                    android.util.SparseBooleanArray checked = lv.getCheckedItemPositions();
-                    List<Long> idsToDelete = new ArrayList<>();
-
-                    for (int i = 0; i < all.size(); i++) {
-                        if (checked.get(i)) {
-                            Transaction t = all.get(i);
-                            idsToDelete.add(t.id);
-
-                            // If this entry is for BC / EMI, roll back corresponding installment
-                            if ("BC".equalsIgnoreCase(t.category) && t.note != null) {
-                                String schemeId = extractSchemeIdFromNote(t.note);
-                                if (schemeId != null) {
-                                    BcStore.unmarkBcInstallment(schemeId, t.month, t.year);
-                                }
-                            } else if ("EMI".equalsIgnoreCase(t.category) && t.note != null) {
-                                String schemeId = extractSchemeIdFromNote(t.note);
-                                if (schemeId != null) {
-                                    EmiStore.unmarkEmiInstallment(schemeId, t.month, t.year);
-                                }
-                            }
-                        }
-                    }
-
-                    if (idsToDelete.isEmpty()) {
+                    long[] ids = adapter.getCheckedIds().toArray();
+                    if (ids.length == 0) {
                         Toast.makeText(ctx, "No entries selected", Toast.LENGTH_SHORT).show();
                         return;
                     }
 
-                    // Persist updated BC / EMI state
-                    BcStore.save(ctx);
-                    EmiStore.save(ctx);
-
-                    // Delete from DB
-                    for (Long id : idsToDelete) {
-                        db.deleteTransactionById(id);
-                    }
-
-                    Toast.makeText(ctx,
-                            "Deleted " + idsToDelete.size() + " entries",
-                            Toast.LENGTH_SHORT).show();
-
-                    // Ask Income/Expenses fragments to refresh if you use FragmentResult as before
-                    androidx.fragment.app.FragmentManager fm = fragment.getParentFragmentManager();
-                    android.os.Bundle b = new android.os.Bundle();
-                    b.putBoolean("refresh", true);
-                    fm.setFragmentResult("refresh_summary", b);
+                    // Delete from DB in one batch and roll back BC / EMI installments in the background
+                    repository.deleteTransactions(ids, FinanceRepository.callback(deleted -> {
+                        if (!fragment.isAdded()) return;
+                        Toast.makeText(ctx,
+                                "Deleted " + deleted + " entries",
+                                Toast.LENGTH_SHORT).show();
+                        // Summary and Graph pick the delete up from DatabaseHelper's change event
+                    }, e -> {
+                        if (!fragment.isAdded()) return;
+                        Toast.makeText(ctx, "Delete failed", Toast.LENGTH_SHORT).show();
+                    }));
                 })
                 .show();
     }
-
-    /**
-     * Note format for BC/EMI entries is:
-     *   schemeId + "||" + userNote
-     * This helper returns the schemeId part, or null if not present.
-     */
-    private static String extractSchemeIdFromNote(String note) {
-        if (note == null) return null;
-        int idx = note.indexOf("||");
-        if (idx <= 0) return null;           // no delimiter or empty id
-        return note.substring(0, idx);
-    }
 }
@@ -0,0 +1,33 @@
+package com.expensemanager;
+
+import android.app.Application;
+import android.content.SharedPreferences;
+
+/**
+ * Process-wide setup that must happen before any activity or receiver runs.
+ * Registered as android:name of the application in AndroidManifest.xml.
+ */
+public class ExpenseManagerApp extends Application {
+
+    private static final String PREFS_NAME = "ExpenseManagerPrefs";
+    private static final String KEY_ROLLUP_CHECKED_DAY = "rollup_checked_day";
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Channels exist before the first reminder is posted, even in a process woken by an alarm
+        ReminderNotifier.createChannels(this);
+        checkMonthlyRollup();
+    }
+
+    // At most once a day, on the write thread: verify monthly_rollup and rebuild it on a mismatch
+    private void checkMonthlyRollup() {
+        FinanceRepository.get(this).execute(db -> {
+            SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+            int today = ScheduleDates.todayEpochDay();
+            if (prefs.getInt(KEY_ROLLUP_CHECKED_DAY, Integer.MIN_VALUE) == today) return;
+            db.repairMonthlyRollup();
+            prefs.edit().putInt(KEY_ROLLUP_CHECKED_DAY, today).apply();
+        });
+    }
+}
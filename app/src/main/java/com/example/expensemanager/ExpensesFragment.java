@@ -2,8 +2,9 @@ package com.expensemanager;
 
 import android.app.AlertDialog;
 import android.content.Context;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.InputFilter;
 import android.text.TextWatcher;
@@ -29,11 +30,18 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 public class ExpensesFragment extends Fragment {
 
-    private DatabaseHelper db;
+    private static final String TAG_LIST = "expense_list";
+    private static final String TAG_CATEGORIES = "expense_categories";
+
+    // Month/Year typing is coalesced: the list query runs once input settles
+    private static final long FILTER_DEBOUNCE_MS = 300;
+
+    private FinanceRepository repository;
+    private final Handler filterHandler = new Handler(Looper.getMainLooper());
+    private final Runnable filterRunnable = this::updateList;
     private GroupedTransactionAdapter adapter;
     private EditText etMonth, etYear, etAmount, etNote;
     private Spinner spinnerCategory;
@@ -51,7 +59,7 @@ public class ExpensesFragment extends Fragment {
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_expenses, container, false);
 
-        db = new DatabaseHelper(getContext());
+        repository = FinanceRepository.get(requireContext());
         adapter = new GroupedTransactionAdapter();
 
         etAmount = view.findViewById(R.id.et_expense_amount);
@@ -79,13 +87,11 @@ public class ExpensesFragment extends Fragment {
         swipeRefreshLayout.setOnRefreshListener(() -> {
             selectedYear = etYear.getText().toString().trim();
             adapter.setSelectedYear(selectedYear);
-            updateList();
-            swipeRefreshLayout.setRefreshing(false);
+            updateList();   // clears the spinner once the list has loaded
         });
 
-        // Load BC and EMI data once
-        BcStore.load(requireContext());
-        EmiStore.load(requireContext());
+        // Load BC and EMI data once (background)
+        repository.loadSchemes(null);
 
         // Three dots menu: BC/EMI menu + Delete + Reminder (Expenses ownerTab)
         ivMenu.setOnClickListener(v -> {
@@ -139,6 +145,8 @@ public class ExpensesFragment extends Fragment {
         categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerCategory.setAdapter(categoryAdapter);
         spinnerCategory.setSelection(0); // start with "Select Category"
+        // Categories used by earlier entries, from the categories dictionary
+        repository.loadCategories(TAG_CATEGORIES, "expense", this::addSavedCategories);
 
         spinnerCategory.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
@@ -193,15 +201,16 @@ public class ExpensesFragment extends Fragment {
                 }
         });
 
-        // Filter list whenever Month or Year changes
+        // Filter list whenever Month or Year changes (debounced; stale queries are dropped)
         TextWatcher filterWatcher = new TextWatcher() {
             @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             @Override public void afterTextChanged(Editable s) {}
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 selectedYear = etYear.getText().toString().trim();
-                adapter.setSelectedYear(selectedYear);
-                updateList();
+                repository.cancel(TAG_LIST);
+                filterHandler.removeCallbacks(filterRunnable);
+                filterHandler.postDelayed(filterRunnable, FILTER_DEBOUNCE_MS);
             }
         };
         etMonth.addTextChangedListener(filterWatcher);
@@ -226,9 +235,9 @@ public class ExpensesFragment extends Fragment {
                 return;
             }
 
-            double amount;
+            long amount;   // paise
             try {
-                amount = Double.parseDouble(amountStr);
+                amount = Money.parse(amountStr);
             } catch (NumberFormatException e) {
                 Toast.makeText(getContext(), "Invalid amount format", Toast.LENGTH_SHORT).show();
                 return;
@@ -243,70 +252,55 @@ public class ExpensesFragment extends Fragment {
                 .setTitle("Confirm Add Expense")
                 .setMessage("Add this expense?")
                 .setPositiveButton("Yes", (dialog, which) -> {
-                    new AsyncTask<Void, Void, Void>() {
-                        @Override
-                        protected Void doInBackground(Void... voids) {
-
-                            // Decide sourceType based on selected radio button
-                            String sourceType;
-                            if (rbExpSalary != null && rbExpSalary.isChecked()) {
-                                sourceType = "SALARY";
-                            } else if (rbExpCommission != null && rbExpCommission.isChecked()) {
-                                sourceType = "COMMISSION";
-                            } else {
-                                sourceType = "OTHER";
-                            }
-
-                            // Option A: prefix schemeId into note for BC/EMI
-                            String finalNote = note;
-                            if ("BC".equals(category) && selectedBcId != null) {
-                                finalNote = selectedBcId + "||" + finalNote;
-                            } else if ("EMI".equals(category) && selectedEmiId != null) {
-                                finalNote = selectedEmiId + "||" + finalNote;
-                            }
-
-                            db.insertTransaction("expense", amount, finalNote, month, year, category, sourceType);
-
-                            // NEW: pass month & year so store can tick matching date
-                            if ("BC".equals(category) && selectedBcId != null) {
-                                BcStore.markBcInstallmentDone(selectedBcId, month, year);
-                                BcStore.save(requireContext());
-                            }
-
-                            if ("EMI".equals(category) && selectedEmiId != null) {
-                                EmiStore.markEmiInstallmentDone(selectedEmiId, month, year);
-                                EmiStore.save(requireContext());
-                            }
-                            return null;
+                    // Decide sourceType based on selected radio button
+                    String sourceType;
+                    if (rbExpSalary != null && rbExpSalary.isChecked()) {
+                        sourceType = "SALARY";
+                    } else if (rbExpCommission != null && rbExpCommission.isChecked()) {
+                        sourceType = "COMMISSION";
+                    } else {
+                        sourceType = "OTHER";
+                    }
+
+                    // Option A: prefix schemeId into note for BC/EMI
+                    String bcId = "BC".equals(category) ? selectedBcId : null;
+                    String emiId = "EMI".equals(category) ? selectedEmiId : null;
+                    String finalNote = note;
+                    if (bcId != null) {
+                        finalNote = bcId + "||" + finalNote;
+                    } else if (emiId != null) {
+                        finalNote = emiId + "||" + finalNote;
+                    }
+
+                    // Insert and tick the matching BC/EMI installment in the background
+                    repository.addTransaction("expense", amount, finalNote, month, year,
+                            category, sourceType, bcId, emiId, FinanceRepository.callback(result -> {
+                        if (!isAdded()) return;
+                        selectedYear = etYear.getText().toString().trim();
+                        adapter.setSelectedYear(selectedYear);
+                        updateList();
+                        etAmount.setText("");
+                        etNote.setText("");
+
+                        spinnerCategory.setSelection(0);
+                        selectedBcId = null;
+                        selectedEmiId = null;
+
+                        if (rbExpOther != null) {
+                            rbExpOther.setChecked(true);
                         }
-                        @Override
-                        protected void onPostExecute(Void aVoid) {
-                            selectedYear = etYear.getText().toString().trim();
-                            adapter.setSelectedYear(selectedYear);
-                            updateList();
-                            etAmount.setText("");
-                            etNote.setText("");
-
-                            spinnerCategory.setSelection(0);
-                            selectedBcId = null;
-                            selectedEmiId = null;
-
-                            if (rbExpOther != null) {
-                                rbExpOther.setChecked(true);
-                            }
-
-                            InputMethodManager imm = (InputMethodManager) getActivity()
-                                    .getSystemService(Context.INPUT_METHOD_SERVICE);
-                            if (imm != null) {
-                                imm.hideSoftInputFromWindow(etAmount.getWindowToken(), 0);
-                                imm.hideSoftInputFromWindow(etNote.getWindowToken(), 0);
-                            }
-
-                            Bundle b = new Bundle();
-                            b.putBoolean("refresh", true);
-                            getParentFragmentManager().setFragmentResult("refresh_summary", b);
+
+                        InputMethodManager imm = (InputMethodManager) requireActivity()
+                                .getSystemService(Context.INPUT_METHOD_SERVICE);
+                        if (imm != null) {
+                            imm.hideSoftInputFromWindow(etAmount.getWindowToken(), 0);
+                            imm.hideSoftInputFromWindow(etNote.getWindowToken(), 0);
                         }
-                    }.execute();
+                    }, e -> {
+                        if (!isAdded()) return;
+                        // Nothing was saved; the form keeps its values for another try
+                        Toast.makeText(getContext(), "Could not save entry", Toast.LENGTH_SHORT).show();
+                    }));
                 })
                 .setNegativeButton("No", null)
                 .show();
@@ -319,6 +313,18 @@ public class ExpensesFragment extends Fragment {
         return view;
     }
 
+    // Saved categories go in front of "Other", which opens the add dialog
+    private void addSavedCategories(List<String> saved) {
+        if (!isAdded()) return;
+        int insertIndex = Math.max(categories.indexOf("Other"), 1);
+        for (String name : saved) {
+            if (!categories.contains(name)) {
+                categories.add(insertIndex++, name);
+            }
+        }
+        categoryAdapter.notifyDataSetChanged();
+    }
+
     private void showAddCategoryDialog() {
         EditText input = new EditText(getContext());
         new AlertDialog.Builder(getContext())
@@ -337,18 +343,35 @@ public class ExpensesFragment extends Fragment {
             .show();
     }
 
+    @Override
+    public void onDestroyView() {
+        filterHandler.removeCallbacks(filterRunnable);
+        repository.cancel(TAG_LIST);
+        repository.cancel(TAG_CATEGORIES);
+        super.onDestroyView();
+    }
+
+    // Query only the selected (type, year, month) slice; needs a 1-12 month and a 4-digit year
     private void updateList() {
-        String month = etMonth.getText().toString().trim();
-        String year = etYear.getText().toString().trim();
-        if (!month.isEmpty() && !year.isEmpty()) {
-            Map<String, List<Transaction>> grouped =
-                    db.getTransactionsByTypeAndYearGroupedByMonth("expense", year);
-            Map<String, List<Transaction>> filtered = new java.util.LinkedHashMap<>();
-            if (grouped.containsKey(month)) {
-                filtered.put(month, grouped.get(month));
-            }
-            adapter.setData(filtered);
+        filterHandler.removeCallbacks(filterRunnable);
+        String monthStr = etMonth.getText().toString().trim();
+        String yearStr = etYear.getText().toString().trim();
+        int month = DatabaseHelper.parseIntOrZero(monthStr);
+        int year = yearStr.length() == 4 ? DatabaseHelper.parseIntOrZero(yearStr) : 0;
+        if (month >= 1 && month <= 12 && year > 0) {
+            repository.loadMonth(TAG_LIST, "expense", year, month, FinanceRepository.callback(filtered -> {
+                if (!isAdded()) return;
+                adapter.setSelectedYear(yearStr);
+                adapter.setData(filtered);
+                swipeRefreshLayout.setRefreshing(false);
+            }, e -> {
+                if (!isAdded()) return;
+                swipeRefreshLayout.setRefreshing(false);
+                Toast.makeText(getContext(), "Could not load entries", Toast.LENGTH_SHORT).show();
+            }));
         } else {
+            repository.cancel(TAG_LIST);
+            swipeRefreshLayout.setRefreshing(false);
             adapter.setData(new java.util.LinkedHashMap<>());
         }
     }
@@ -0,0 +1,394 @@
+package com.expensemanager;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Single entry point for DatabaseHelper / BcStore / EmiStore I/O off the UI thread.
+ *
+ * Writes (and scheme hydration) run on one serial thread, so they are applied in the order
+ * they were submitted. Reads run on a small pool next to it; the database is in WAL mode,
+ * so a read never waits for a write to commit. Screens reload from the write's callback,
+ * which fires after the commit, so they always see their own changes.
+ *
+ * Results, and failures (Callback.onError), are posted back to the main thread. Reads carry
+ * a tag ("income_list", "summary_cards", ...): submitting a new request with the same tag
+ * supersedes the previous one, which is cancelled if it has not started yet and its result
+ * is dropped if it has.
+ *
+ * submit() and cancel() must be called on the main thread; execute() from any thread.
+ */
+public final class FinanceRepository {
+
+    private static final String TAG = "FinanceRepository";
+
+    /** Background query against the database; runs on a repository thread. */
+    public interface Query<T> {
+        T run(DatabaseHelper db) throws Exception;
+    }
+
+    /** Background write with no result; runs on the write thread. */
+    public interface Work {
+        void run(DatabaseHelper db) throws Exception;
+    }
+
+    /** Delivered on the main thread. */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        /** The query threw (already logged); superseded requests get neither call. */
+        default void onError(Exception e) {
+        }
+    }
+
+    /** A callback for lambdas that also need to hear about failures. */
+    public static <T> Callback<T> callback(Callback<T> onResult, Callback<Exception> onError) {
+        return new Callback<T>() {
+            @Override
+            public void onResult(T result) {
+                onResult.onResult(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onError.onResult(e);
+            }
+        };
+    }
+
+    private static FinanceRepository instance;
+
+    public static synchronized FinanceRepository get(Context context) {
+        if (instance == null) {
+            instance = new FinanceRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final Context appContext;
+    private final DatabaseHelper db;
+    private static final int READ_THREADS = 2;
+
+    private final ExecutorService writeExecutor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "finance-write"));
+    private final ExecutorService readExecutor =
+            Executors.newFixedThreadPool(READ_THREADS, r -> new Thread(r, "finance-read"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Latest generation per tag and its pending future; main thread only
+    private final HashMap<String, Integer> generations = new HashMap<>();
+    private final HashMap<String, Future<?>> pending = new HashMap<>();
+
+    private FinanceRepository(Context appContext) {
+        this.appContext = appContext;
+        this.db = DatabaseHelper.getInstance(appContext);
+    }
+
+    /**
+     * Run a read in the background and deliver its result on the main thread.
+     * With a non-null tag, any earlier request with the same tag is superseded.
+     */
+    public <T> void submit(String tag, Query<T> query, Callback<T> callback) {
+        run(readExecutor, tag, query, callback);
+    }
+
+    /**
+     * Like submit(), but queued behind the writes on the write thread. The result reflects
+     * every write submitted before it, and arrives after those writes' TransactionChange
+     * events. Meant for small reads whose result later has change deltas applied to it.
+     */
+    public <T> void submitOrdered(String tag, Query<T> query, Callback<T> callback) {
+        run(writeExecutor, tag, query, callback);
+    }
+
+    /** Like submit(), but on the serial write thread and never superseded. */
+    private <T> void submitWrite(Query<T> query, Callback<T> callback) {
+        run(writeExecutor, null, query, callback);
+    }
+
+    private <T> void run(ExecutorService executor, String tag, Query<T> query, Callback<T> callback) {
+        final int generation = tag != null ? supersede(tag) : 0;
+        Future<?> future = executor.submit(() -> {
+            T result;
+            try {
+                result = query.run(db);
+            } catch (Exception e) {
+                Log.e(TAG, "Query failed" + (tag != null ? " (" + tag + ")" : ""), e);
+                mainHandler.post(() -> {
+                    if (tag != null) {
+                        if (!isCurrent(tag, generation)) return;
+                        pending.remove(tag);
+                    }
+                    if (callback != null) callback.onError(e);
+                });
+                return;
+            }
+            mainHandler.post(() -> {
+                if (tag != null) {
+                    if (!isCurrent(tag, generation)) return;
+                    pending.remove(tag);
+                }
+                if (callback != null) callback.onResult(result);
+            });
+        });
+        if (tag != null) {
+            pending.put(tag, future);
+        }
+    }
+
+    /** Queue a write; no result is delivered. Safe to call from any thread. */
+    public void execute(Work work) {
+        writeExecutor.execute(() -> {
+            try {
+                work.run(db);
+            } catch (Exception e) {
+                Log.e(TAG, "Write failed", e);
+            }
+        });
+    }
+
+    /** Drop any in-flight request for this tag, e.g. from onDestroyView. */
+    public void cancel(String tag) {
+        supersede(tag);
+        pending.remove(tag);
+    }
+
+    /** True while a request with this tag has been submitted but not yet delivered. */
+    public boolean isPending(String tag) {
+        return pending.containsKey(tag);
+    }
+
+    /** See DatabaseHelper.addChangeListener; remove the listener again in onDestroyView. */
+    public void addChangeListener(TransactionChange.Listener listener) {
+        db.addChangeListener(listener);
+    }
+
+    public void removeChangeListener(TransactionChange.Listener listener) {
+        db.removeChangeListener(listener);
+    }
+
+    private int supersede(String tag) {
+        Future<?> previous = pending.remove(tag);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        Integer current = generations.get(tag);
+        int next = current == null ? 1 : current + 1;
+        generations.put(tag, next);
+        return next;
+    }
+
+    private boolean isCurrent(String tag, int generation) {
+        Integer current = generations.get(tag);
+        return current != null && current == generation;
+    }
+
+    // ---- BC / EMI stores ----
+
+    /** Hydrate BcStore and EmiStore from the database (once per process). */
+    public void loadSchemes(Callback<Void> callback) {
+        submitWrite(db -> {
+            BcStore.ensureLoaded(appContext);
+            EmiStore.ensureLoaded(appContext);
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Unpaid BC / EMI installments due before today + days, overdue ones included, earliest
+     * first (see DueIndex). Ordered behind pending writes, so ticks from a just-added entry
+     * are already reflected.
+     */
+    public void loadUpcomingDues(String tag, int days, Callback<List<DueIndex.Entry>> callback) {
+        submitOrdered(tag, db -> {
+            BcStore.ensureLoaded(appContext);
+            EmiStore.ensureLoaded(appContext);
+            return DueIndex.dueBefore(ScheduleDates.todayEpochDay() + days);
+        }, callback);
+    }
+
+    // ---- transactions ----
+
+    /**
+     * Insert one income/expense entry and tick the matching BC / EMI installment, both in
+     * one database transaction. bcId / emiId may be null.
+     */
+    public void addTransaction(String type, long amount, String note, String month, String year,
+                               String category, String sourceType, String bcId, String emiId,
+                               Callback<Void> callback) {
+        submitWrite(db -> {
+            // Hydrate first: a first load may import legacy data, which must not roll back with us
+            if (bcId != null) BcStore.ensureLoaded(appContext);
+            if (emiId != null) EmiStore.ensureLoaded(appContext);
+            List<Flip> flips = new ArrayList<>();
+            return runWithFlips(db, flips, () -> {
+                db.insertTransaction(type, amount, note, month, year, category, sourceType);
+                if (bcId != null) flipInstallment(db, flips, BcStore.KIND, bcId, month, year, true);
+                if (emiId != null) flipInstallment(db, flips, EmiStore.KIND, emiId, month, year, true);
+                return null;
+            });
+        }, callback);
+    }
+
+    /**
+     * Delete entries by id and roll back the BC / EMI installment each one had ticked,
+     * driven by the rows the delete actually removed, all in one database transaction.
+     * Delivers the number of rows deleted.
+     */
+    public void deleteTransactions(long[] ids, Callback<Integer> callback) {
+        submitWrite(db -> {
+            // Which schemes are involved is only known inside the transaction, so hydrate both
+            BcStore.ensureLoaded(appContext);
+            EmiStore.ensureLoaded(appContext);
+            List<Flip> flips = new ArrayList<>();
+            List<Transaction> deleted = runWithFlips(db, flips, () -> {
+                List<Transaction> rows = db.deleteTransactions(ids);
+                for (Transaction t : rows) {
+                    String schemeId = extractSchemeIdFromNote(t.note);
+                    if (schemeId == null) continue;
+                    if ("BC".equalsIgnoreCase(t.category)) {
+                        flipInstallment(db, flips, BcStore.KIND, schemeId, t.month, t.year, false);
+                    } else if ("EMI".equalsIgnoreCase(t.category)) {
+                        flipInstallment(db, flips, EmiStore.KIND, schemeId, t.month, t.year, false);
+                    }
+                }
+                return rows;
+            });
+            return deleted.size();
+        }, callback);
+    }
+
+    /** One installment flag flipped in BcStore / EmiStore memory by the running write. */
+    private static final class Flip {
+        final String kind;
+        final String schemeId;
+        final int index;
+        final boolean paid;
+
+        Flip(String kind, String schemeId, int index, boolean paid) {
+            this.kind = kind;
+            this.schemeId = schemeId;
+            this.index = index;
+            this.paid = paid;
+        }
+
+        void undo() {
+            if (BcStore.KIND.equals(kind)) {
+                BcStore.setInstallmentPaid(schemeId, index, !paid);
+            } else {
+                EmiStore.setInstallmentPaid(schemeId, index, !paid);
+            }
+        }
+    }
+
+    // Flip the month's installment in the store, then write it inside the caller's transaction
+    private static void flipInstallment(DatabaseHelper db, List<Flip> flips, String kind, String schemeId,
+                                        String month, String year, boolean paid) {
+        int index;
+        if (BcStore.KIND.equals(kind)) {
+            index = paid ? BcStore.markBcInstallmentDone(schemeId, month, year)
+                    : BcStore.unmarkBcInstallment(schemeId, month, year);
+        } else {
+            index = paid ? EmiStore.markEmiInstallmentDone(schemeId, month, year)
+                    : EmiStore.unmarkEmiInstallment(schemeId, month, year);
+        }
+        if (index < 0) return;
+        // Recorded before the write, so a failing write is undone as well
+        flips.add(new Flip(kind, schemeId, index, paid));
+        db.setInstallmentPaid(kind, schemeId, index, paid);
+    }
+
+    /**
+     * Run writes that flip installments as one transaction. On rollback the stores get the
+     * old flags back; after the commit each scheme's queued reminder is re-read, since it may
+     * be for the installment that just changed.
+     */
+    private <T> T runWithFlips(DatabaseHelper db, List<Flip> flips, Callable<T> writes) throws Exception {
+        T result;
+        try {
+            result = db.runInTransaction(writes);
+        } catch (Exception e) {
+            for (Flip flip : flips) {
+                flip.undo();
+            }
+            throw e;
+        }
+        for (Flip flip : flips) {
+            ReminderScheduler.refresh(appContext, db, flip.kind, flip.schemeId);
+        }
+        return result;
+    }
+
+    public void clearAllData(Callback<Void> callback) {
+        submitWrite(db -> {
+            db.clearAllData();
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Entries of one type for a single month of a year (Income / Expenses lists),
+     * keyed by month number for GroupedTransactionAdapter.
+     */
+    public void loadMonth(String tag, String type, int year, int month,
+                          Callback<Map<String, List<Transaction>>> callback) {
+        submit(tag, db -> {
+            Map<String, List<Transaction>> filtered = new LinkedHashMap<>();
+            List<Transaction> txns = db.getTransactionsByTypeYearMonth(type, year, month, null);
+            if (!txns.isEmpty()) {
+                filtered.put(String.valueOf(month), txns);
+            }
+            return filtered;
+        }, callback);
+    }
+
+    /**
+     * One keyset page of entries, newest first (see DatabaseHelper.forEachTransactionInPage).
+     * Each streamed row is turned into a caller-defined R by mapper on the read thread, so
+     * only what the screen needs is kept; mapper must not hold on to the row it is given.
+     */
+    public <R> void loadTransactionsPage(String tag, String projection, String beforeDate, long beforeId,
+                                         int limit, String filter, Function<Transaction, R> mapper,
+                                         Callback<List<R>> callback) {
+        submit(tag, db -> {
+            List<R> page = new ArrayList<>(limit);
+            db.forEachTransactionInPage(projection, beforeDate, beforeId, limit, filter,
+                    row -> page.add(mapper.apply(row)));
+            return page;
+        }, callback);
+    }
+
+    /** Category names used with this type, most used first. */
+    public void loadCategories(String tag, String type, Callback<List<String>> callback) {
+        submit(tag, db -> db.getCategories(type), callback);
+    }
+
+    public void loadYears(String tag, Callback<List<String>> callback) {
+        submit(tag, db -> new ArrayList<>(db.getAllYears()), callback);
+    }
+
+    /**
+     * Note format for BC/EMI entries is:
+     *   schemeId + "||" + userNote
+     * This helper returns the schemeId part, or null if not present.
+     */
+    static String extractSchemeIdFromNote(String note) {
+        if (note == null) return null;
+        int idx = note.indexOf("||");
+        if (idx <= 0) return null;           // no delimiter or empty id
+        return note.substring(0, idx);
+    }
+}
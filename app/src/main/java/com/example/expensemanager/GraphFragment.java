@@ -19,31 +19,107 @@ import com.github.mikephil.charting.data.BarEntry;
 import com.github.mikephil.charting.formatter.IndexAxisValueFormatter;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 public class GraphFragment extends Fragment {
-    private DatabaseHelper db;
+    private static final String TAG_CHARTS = "graph_charts";
+    private static final String TAG_YEAR_PREFIX = "graph_year_";
+
+    private FinanceRepository repository;
     private LinearLayout chartContainer;
+    // Chart per displayed year, so a change only redraws the years it touched
+    private final Map<String, BarChart> charts = new HashMap<>();
+    private final TransactionChange.Listener changeListener = this::onTransactionsChanged;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_graph, container, false);
         chartContainer = view.findViewById(R.id.chart_container);
-        db = new DatabaseHelper(getContext());
+        repository = FinanceRepository.get(requireContext());
+        repository.addChangeListener(changeListener);
         displayAllYearCharts();
         return view;
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        displayAllYearCharts();
+    public void onDestroyView() {
+        repository.removeChangeListener(changeListener);
+        repository.cancel(TAG_CHARTS);
+        for (String year : charts.keySet()) {
+            repository.cancel(TAG_YEAR_PREFIX + year);
+        }
+        charts.clear();
+        super.onDestroyView();
+    }
+
+    private void onTransactionsChanged(TransactionChange change) {
+        TreeSet<String> years = new TreeSet<>();
+        for (Transaction t : change.rows) {
+            years.add(t.year);
+        }
+        // A clear, a brand-new year or a full load that may have missed the write: rebuild everything
+        if (change.kind == TransactionChange.CLEARED || repository.isPending(TAG_CHARTS)
+                || !charts.keySet().containsAll(years)) {
+            displayAllYearCharts();
+            return;
+        }
+        for (String year : years) {
+            reloadYear(year);
+        }
+    }
+
+    private void reloadYear(String year) {
+        repository.submit(TAG_YEAR_PREFIX + year, db -> {
+            float[] incomeByMonth = new float[12];
+            float[] expenseByMonth = new float[12];
+            db.getGroupedMonthlyValues(incomeByMonth, expenseByMonth, year);
+            return new float[][]{incomeByMonth, expenseByMonth};
+        }, yearValues -> {
+            if (!isAdded()) return;
+            BarChart chart = charts.get(year);
+            if (chart == null) return;
+            if (isEmpty(yearValues[0]) && isEmpty(yearValues[1])) {
+                // last entry of the year was deleted: the year drops out of the list
+                displayAllYearCharts();
+                return;
+            }
+            setupChartForYear(chart, yearValues[0], yearValues[1]);
+        });
+    }
+
+    private static boolean isEmpty(float[] values) {
+        for (float v : values) {
+            if (v != 0f) return false;
+        }
+        return true;
     }
 
     private void displayAllYearCharts() {
+        // year -> {income by month, expense by month}, read in the background
+        repository.submit(TAG_CHARTS, db -> {
+            Map<String, float[][]> values = new LinkedHashMap<>();
+            for (String year : db.getAllYears()) {
+                float[] incomeByMonth = new float[12];
+                float[] expenseByMonth = new float[12];
+                db.getGroupedMonthlyValues(incomeByMonth, expenseByMonth, year);
+                values.put(year, new float[][]{incomeByMonth, expenseByMonth});
+            }
+            return values;
+        }, values -> {
+            if (!isAdded()) return;
+            showYearCharts(values);
+        });
+    }
+
+    private void showYearCharts(Map<String, float[][]> values) {
         chartContainer.removeAllViews();
+        charts.clear();
 
-        List<String> years = db.getAllYears();
+        List<String> years = new ArrayList<>(values.keySet());
         if (years.isEmpty()) {
             TextView noData = new TextView(getContext());
             noData.setText("No transactions to display");
@@ -75,8 +151,10 @@ public class GraphFragment extends Fragment {
                 600 // Height in pixels, adjust as needed
             );
             chart.setLayoutParams(chartParams);
-            setupChartForYear(chart, year);
+            float[][] yearValues = values.get(year);
+            setupChartForYear(chart, yearValues[0], yearValues[1]);
             chartContainer.addView(chart);
+            charts.put(year, chart);
 
             // Divider between years
             if (i < years.size() - 1) {
@@ -93,7 +171,7 @@ public class GraphFragment extends Fragment {
         }
     }
 
-    private void setupChartForYear(BarChart chart, String year) {
+    private void setupChartForYear(BarChart chart, float[] incomeByMonth, float[] expenseByMonth) {
         ArrayList<BarEntry> incomeEntries = new ArrayList<>();
         ArrayList<BarEntry> expenseEntries = new ArrayList<>();
 
@@ -102,10 +180,6 @@ public class GraphFragment extends Fragment {
         String[] monthAbbr = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
         for (String m : monthAbbr) monthLabels.add(m);
 
-        float[] incomeByMonth = new float[12];
-        float[] expenseByMonth = new float[12];
-        db.getGroupedMonthlyValues(incomeByMonth, expenseByMonth, year);
-
         for (int i = 0; i < 12; i++) {
             incomeEntries.add(new BarEntry(i, incomeByMonth[i]));
             expenseEntries.add(new BarEntry(i, expenseByMonth[i]));
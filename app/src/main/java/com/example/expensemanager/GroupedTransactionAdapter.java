@@ -59,7 +59,7 @@ public class GroupedTransactionAdapter extends RecyclerView.Adapter<RecyclerView
             Transaction item = (Transaction) items.get(position);
             TransactionViewHolder vh = (TransactionViewHolder) holder;
 
-            vh.tvAmount.setText(String.valueOf(item.amount));
+            vh.tvAmount.setText(Money.format(item.amount));
             vh.tvNote.setText(item.note);
             vh.tvDate.setText(item.date);
 
@@ -0,0 +1,107 @@
+package com.expensemanager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fields shared by BC and EMI schemes. BcStore.BcScheme and EmiStore.EmiScheme
+ * extend this so DatabaseHelper can persist both kinds through one code path.
+ */
+public class InstallmentScheme {
+    public String name;
+    public int months;
+    public String startDate;              // dd/MM/yyyy
+    // Installment due dates as ascending yyyymmdd keys (see ScheduleDates)
+    public int[] schedule = new int[0];
+
+    // Unique id: key + "|" + name
+    public String id = "";
+
+    // Account bucket this scheme lives under (account name or "_GLOBAL_")
+    public String accountKey = "";
+
+    // Installment type and amounts
+    public String installmentType = "NONE";  // FIXED / RANDOM / NONE
+    public int fixedAmount = 0;
+    public List<Integer> monthlyAmounts = new ArrayList<>();
+
+    // which tab owns this scheme: "INCOME" or "EXPENSE"
+    public String ownerTab = "INCOME";
+
+    // Which installments are paid, one bit per schedule index
+    public final InstallmentState paid = new InstallmentState();
+
+    // whether reminder is enabled for this scheme
+    public boolean reminderEnabled = false;
+
+    /**
+     * Copy every field of {@code other}; the stores swap in copies instead of editing schemes
+     * the UI may hold. The schedule array is shared, it is never written after parsing.
+     */
+    public void copyFrom(InstallmentScheme other) {
+        name = other.name;
+        months = other.months;
+        startDate = other.startDate;
+        schedule = other.schedule;
+        id = other.id;
+        accountKey = other.accountKey;
+        installmentType = other.installmentType;
+        fixedAmount = other.fixedAmount;
+        monthlyAmounts = new ArrayList<>(other.monthlyAmounts);
+        ownerTab = other.ownerTab;
+        paid.copyFrom(other.paid);
+        reminderEnabled = other.reminderEnabled;
+    }
+
+    /**
+     * Drop unparseable (0) dates and sort the schedule ascending, moving each installment's
+     * paid flag and RANDOM amount along with it. For imported legacy data, which made no
+     * ordering promise; ScheduleDates.firstIndexInMonth binary-searches the schedule.
+     */
+    public void normalizeSchedule() {
+        // key << 32 | old index: sorting the packed values sorts by date, ties in old order
+        long[] order = new long[schedule.length];
+        int n = 0;
+        boolean sorted = true;
+        for (int i = 0; i < schedule.length; i++) {
+            if (schedule[i] <= 0) continue;
+            order[n] = ((long) schedule[i] << 32) | i;
+            if (n > 0 && order[n] < order[n - 1]) sorted = false;
+            n++;
+        }
+        if (sorted && n == schedule.length) return;
+        Arrays.sort(order, 0, n);
+
+        int[] keys = new int[n];
+        boolean[] flags = new boolean[n];
+        List<Integer> amounts = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            int i = (int) order[k];
+            keys[k] = schedule[i];
+            flags[k] = paid.isPaid(i);
+            amounts.add(i < monthlyAmounts.size() ? monthlyAmounts.get(i) : 0);
+        }
+        schedule = keys;
+        paid.resize(0);
+        paid.resize(n);
+        for (int k = 0; k < n; k++) {
+            paid.setPaid(k, flags[k]);
+        }
+        if (!monthlyAmounts.isEmpty()) {
+            monthlyAmounts = amounts;
+        }
+    }
+
+    // How many installments are paid (derived, never stored)
+    public int paidCount() {
+        return paid.paidCount();
+    }
+
+    // Rupee amount of installment i, or 0 when the scheme has no amounts
+    public int installmentAmount(int i) {
+        if ("FIXED".equals(installmentType)) return fixedAmount;
+        if ("RANDOM".equals(installmentType) && i < monthlyAmounts.size()) return monthlyAmounts.get(i);
+        return 0;
+    }
+}
@@ -0,0 +1,65 @@
+package com.expensemanager;
+
+import java.util.BitSet;
+
+/**
+ * Paid / unpaid state of a scheme's installments, one bit per schedule index.
+ * Replaces the old List<Boolean> paidFlags + hand-maintained paidCount pair:
+ * the paid count is a popcount over the packed words, and the next unpaid
+ * installment is a nextClearBit lookup instead of a loop over boxed flags.
+ */
+public class InstallmentState {
+
+    private final BitSet bits = new BitSet();
+
+    // number of scheduled installments; bits at or beyond this index are never set
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    /** Track exactly {@code newSize} installments, dropping any paid bits past the end. */
+    public void resize(int newSize) {
+        size = Math.max(newSize, 0);
+        if (bits.length() > size) {
+            bits.clear(size, bits.length());
+        }
+    }
+
+    /** Make this an independent copy of {@code other}. */
+    public void copyFrom(InstallmentState other) {
+        bits.clear();
+        bits.or(other.bits);
+        size = other.size;
+    }
+
+    public boolean isPaid(int index) {
+        return index >= 0 && index < size && bits.get(index);
+    }
+
+    /**
+     * Set one installment's paid flag.
+     * Returns true if the flag actually changed (so callers know whether to persist).
+     */
+    public boolean setPaid(int index, boolean paid) {
+        if (index < 0 || index >= size || bits.get(index) == paid) return false;
+        bits.set(index, paid);
+        return true;
+    }
+
+    public int paidCount() {
+        return bits.cardinality();
+    }
+
+    /** Index of the first unpaid installment, or -1 when everything is paid. */
+    public int nextUnpaid() {
+        return nextUnpaid(0);
+    }
+
+    /** Index of the first unpaid installment at or after {@code from}, or -1. */
+    public int nextUnpaid(int from) {
+        int next = bits.nextClearBit(Math.max(from, 0));
+        return next < size ? next : -1;
+    }
+}
@@ -0,0 +1,41 @@
+package com.expensemanager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts are whole paise (1/100 rupee) in a long everywhere: in the database, in
+ * Transaction.amount and in every total, so sums are exact. Rupee text only exists at the
+ * edges: parse() for what the user typed and format() for what is shown.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /**
+     * "1250", "1250.5", "1,250.50" -> paise. Extra decimals are rounded half-up.
+     * Throws NumberFormatException for anything that is not a number or is out of range.
+     */
+    public static long parse(String rupees) {
+        if (rupees == null) throw new NumberFormatException("null amount");
+        BigDecimal value = new BigDecimal(rupees.trim().replace(",", ""));
+        try {
+            return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("amount out of range: " + rupees);
+        }
+    }
+
+    /** Paise -> "1250.50". */
+    public static String format(long paise) {
+        long abs = Math.abs(paise);
+        long fraction = abs % 100;
+        return (paise < 0 ? "-" : "") + (abs / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    /** Paise -> rupees as a float, for chart values only (never for arithmetic). */
+    public static float toChartValue(long paise) {
+        return paise / 100f;
+    }
+}
@@ -0,0 +1,33 @@
+package com.expensemanager;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Re-arms ReminderScheduler's alarm after a reboot (which clears all alarms) and after the
+ * clock or time zone changes (which moves every fire time). Registered in AndroidManifest.xml.
+ */
+public class ReminderBootReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action)
+                && !Intent.ACTION_TIME_CHANGED.equals(action)
+                && !Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            return;
+        }
+
+        // One pass over the reminders table on the repository's write thread
+        Context appContext = context.getApplicationContext();
+        PendingResult pending = goAsync();
+        FinanceRepository.get(appContext).execute(db -> {
+            try {
+                ReminderScheduler.rebuild(appContext, db);
+            } finally {
+                pending.finish();
+            }
+        });
+    }
+}
@@ -1,31 +1,20 @@
 package com.expensemanager;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.Context;
-import android.content.Intent;
 import android.text.TextUtils;
 
-import com.expensemanager.BcStore.BcScheme;
-import com.expensemanager.EmiStore.EmiScheme;
-
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Locale;
-
 /**
  * Helper for scheduling BC / EMI installment reminders.
- * Called from ReminderUiHelper after user selects scheme + time,
- * and from EmiReminderReceiver to schedule the next cycle.
+ * Called from ReminderUiHelper after user selects scheme + time.
+ *
+ * The chosen time is saved in the reminders table and the scheme joins ReminderScheduler's
+ * single alarm; the scheduler moves it on to the next installment after each fire.
  */
 public class ReminderHelper {
 
-    private static final String DATE_FORMAT = "dd/MM/yyyy";
-
     /**
      * Schedule a reminder for the selected scheme.
-     * Alarm time = NEXT due date at given hour:minute.
+     * Alarm time = NEXT unpaid due date at given hour:minute. Safe to call on the main thread.
      *
      * @param context  Context.
      * @param type     "BC" or "EMI".
@@ -43,95 +32,8 @@ public class ReminderHelper {
             return;
         }
 
-        String nextDueDate = getNextDueDate(type, schemeId);
-        if (TextUtils.isEmpty(nextDueDate)) {
-            // No more installments; nothing to schedule
-            return;
-        }
-
-        SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT, Locale.getDefault());
-        Calendar cal = Calendar.getInstance();
-        try {
-            // Set to due date
-            cal.setTime(df.parse(nextDueDate));
-        } catch (ParseException e) {
-            return;
-        }
-
-        // Fire ON due date at chosen time
-        cal.set(Calendar.HOUR_OF_DAY, hour24);
-        cal.set(Calendar.MINUTE, minute);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-
-        // If time is already in the past for this cycle, skip
-        if (cal.getTimeInMillis() <= System.currentTimeMillis()) {
-            return;
-        }
-
-        String title = ("BC".equals(type) ? "BC Reminder" : "EMI Reminder");
-        String message = "Installment due on " + nextDueDate;
-
-        Intent intent = new Intent(context, EmiReminderReceiver.class);
-        intent.putExtra("type", type);
-        intent.putExtra("schemeId", schemeId);
-        intent.putExtra("hour24", hour24);
-        intent.putExtra("minute", minute);
-        intent.putExtra("title", title);
-        intent.putExtra("message", message);
-
-        // Stable requestCode per scheme so you overwrite previous alarm for that scheme
-        int requestCode = schemeId.hashCode();
-
-        PendingIntent pi = PendingIntent.getBroadcast(
-                context,
-                requestCode,
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        AlarmManager alarmManager =
-                (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-
-        if (alarmManager != null) {
-            alarmManager.setExactAndAllowWhileIdle(
-                    AlarmManager.RTC_WAKEUP,
-                    cal.getTimeInMillis(),
-                    pi
-            );
-        }
-    }
-
-    /**
-     * Find the next unpaid due date for the given scheme.
-     * Uses scheduleDates[paidCount] if available.
-     */
-    private static String getNextDueDate(String type, String schemeId) {
-        if ("BC".equals(type)) {
-            for (java.util.Map.Entry<String, java.util.ArrayList<BcScheme>> entry
-                    : BcStore.getBcMap().entrySet()) {
-                for (BcScheme s : entry.getValue()) {
-                    if (schemeId.equals(s.id)) {
-                        if (s.paidCount >= 0 && s.paidCount < s.scheduleDates.size()) {
-                            return s.scheduleDates.get(s.paidCount);
-                        }
-                        return null;
-                    }
-                }
-            }
-        } else if ("EMI".equals(type)) {
-            for (java.util.Map.Entry<String, java.util.ArrayList<EmiScheme>> entry
-                    : EmiStore.getEmiMap().entrySet()) {
-                for (EmiScheme s : entry.getValue()) {
-                    if (schemeId.equals(s.id)) {
-                        if (s.paidCount >= 0 && s.paidCount < s.scheduleDates.size()) {
-                            return s.scheduleDates.get(s.paidCount);
-                        }
-                        return null;
-                    }
-                }
-            }
-        }
-        return null;
+        Context appContext = context.getApplicationContext();
+        FinanceRepository.get(appContext).execute(db ->
+                ReminderScheduler.setReminder(appContext, db, type, schemeId, hour24, minute));
     }
 }
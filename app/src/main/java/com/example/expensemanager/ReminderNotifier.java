@@ -0,0 +1,179 @@
+package com.expensemanager;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+import android.service.notification.StatusBarNotification;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Posts every BC / EMI reminder notification, for EmiReminderReceiver and BcReminderReceiver.
+ *
+ * Each scheme has a fixed notification id, so its next reminder replaces the previous one
+ * instead of piling up. Reminders for the same due date share a group whose inbox-style
+ * summary lists all of them. A token bucket caps how many individual notifications a burst
+ * may post; reminders over the limit still appear as a line in their day's summary.
+ */
+public final class ReminderNotifier {
+
+    static final String CHANNEL_ID = "emi_bc_reminder_channel";
+    // Used by BcReminderReceiver before reminders shared one channel
+    private static final String OLD_BC_CHANNEL_ID = "bc_reminder_channel";
+
+    private static final String GROUP_PREFIX = "com.expensemanager.REMINDERS_";
+
+    // Scheme ids are hashed into [2^30, 2^31); summaries use the yyyymmdd key, far below that
+    private static final int SCHEME_ID_BASE = 0x40000000;
+
+    // Burst of up to 4 individual notifications, then one more every 2 seconds
+    private static final TokenBucket bucket = new TokenBucket(4, 2_000L);
+
+    private ReminderNotifier() {
+    }
+
+    /** Create the reminder channel; called once per process from ExpenseManagerApp. */
+    public static void createChannels(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager manager = context.getSystemService(NotificationManager.class);
+            if (manager == null) return;
+
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID, "EMI & BC Reminders", NotificationManager.IMPORTANCE_HIGH);
+            channel.setDescription("Notifications for monthly EMI and BC installments");
+            manager.createNotificationChannel(channel);
+            manager.deleteNotificationChannel(OLD_BC_CHANNEL_ID);
+        }
+    }
+
+    /** Show what ReminderScheduler found due: one notification per scheme plus day summaries. */
+    public static void showDue(Context context, List<ReminderScheduler.Due> due) {
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        if (!manager.areNotificationsEnabled()) return;
+
+        // dueKey -> (notification id -> summary line) for the lines posted in this batch
+        Map<Integer, Map<Integer, CharSequence>> byDay = new LinkedHashMap<>();
+        for (ReminderScheduler.Due d : due) {
+            int id = notificationId(d.kind, d.schemeId);
+            String title = d.kind + " · " + d.schemeName;
+            Map<Integer, CharSequence> lines = byDay.get(d.dueKey);
+            if (lines == null) {
+                lines = new LinkedHashMap<>();
+                byDay.put(d.dueKey, lines);
+            }
+            lines.put(id, title);
+
+            if (bucket.tryAcquire()) {
+                manager.notify(id, builder(context, title,
+                        "Installment due on " + ScheduleDates.format(d.dueKey))
+                        .setGroup(GROUP_PREFIX + d.dueKey)
+                        .build());
+            }
+        }
+        for (Map.Entry<Integer, Map<Integer, CharSequence>> day : byDay.entrySet()) {
+            postSummary(context, manager, day.getKey(), day.getValue());
+        }
+    }
+
+    /**
+     * Show a reminder carrying only a title and message (alarms armed by older versions).
+     * Still uses the scheme's fixed id and the rate limit, and joins today's group: those
+     * alarms fire on the due date. Over the limit it is only a line in that summary.
+     */
+    public static void showSingle(Context context, String kind, String schemeId, String title, String message) {
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        if (!manager.areNotificationsEnabled()) return;
+
+        int id = notificationId(kind, schemeId);
+        int dueKey = ScheduleDates.fromCalendar(Calendar.getInstance());
+        if (bucket.tryAcquire()) {
+            manager.notify(id, builder(context, title, message)
+                    .setGroup(GROUP_PREFIX + dueKey)
+                    .build());
+        }
+        Map<Integer, CharSequence> line = new LinkedHashMap<>();
+        line.put(id, title);
+        postSummary(context, manager, dueKey, line);
+    }
+
+    /**
+     * Summary of one day's group. Its lines are the reminders of this batch plus those of
+     * earlier batches still showing, so reminders at different times of a day add up.
+     */
+    private static void postSummary(Context context, NotificationManagerCompat manager,
+                                    int dueKey, Map<Integer, CharSequence> batch) {
+        String group = GROUP_PREFIX + dueKey;
+        Map<Integer, CharSequence> lines = new LinkedHashMap<>();
+        NotificationManager platform = context.getSystemService(NotificationManager.class);
+        if (platform != null) {
+            for (StatusBarNotification sbn : platform.getActiveNotifications()) {
+                Notification n = sbn.getNotification();
+                if (sbn.getId() != dueKey && group.equals(n.getGroup())) {
+                    lines.put(sbn.getId(), n.extras.getCharSequence(Notification.EXTRA_TITLE));
+                }
+            }
+        }
+        lines.putAll(batch);
+
+        String title = lines.size() == 1
+                ? "1 installment due on " + ScheduleDates.format(dueKey)
+                : lines.size() + " installments due on " + ScheduleDates.format(dueKey);
+        NotificationCompat.InboxStyle inbox = new NotificationCompat.InboxStyle().setBigContentTitle(title);
+        for (CharSequence line : lines.values()) {
+            inbox.addLine(line);
+        }
+
+        manager.notify(dueKey, builder(context, title, lines.values().iterator().next())
+                .setStyle(inbox)
+                .setGroup(group)
+                .setGroupSummary(true)
+                .build());
+    }
+
+    private static NotificationCompat.Builder builder(Context context, CharSequence title, CharSequence text) {
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setAutoCancel(true)                  // user tap dismisses it
+                .setPriority(NotificationCompat.PRIORITY_HIGH);
+    }
+
+    // Same scheme -> same id across processes and app restarts (String.hashCode is specified)
+    static int notificationId(String kind, String schemeId) {
+        return SCHEME_ID_BASE | ((kind + "|" + schemeId).hashCode() & (SCHEME_ID_BASE - 1));
+    }
+
+    /** Classic token bucket on the elapsed-time clock; at most {@code capacity} in a burst. */
+    private static final class TokenBucket {
+        private final int capacity;
+        private final long refillMillis;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(int capacity, long refillMillis) {
+            this.capacity = capacity;
+            this.refillMillis = refillMillis;
+            this.tokens = capacity;
+            this.lastRefill = SystemClock.elapsedRealtime();
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = SystemClock.elapsedRealtime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / (double) refillMillis);
+            lastRefill = now;
+            if (tokens < 1) return false;
+            tokens -= 1;
+            return true;
+        }
+    }
+}
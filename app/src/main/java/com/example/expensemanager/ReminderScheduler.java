@@ -0,0 +1,222 @@
+package com.expensemanager;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * One alarm for every BC / EMI reminder.
+ *
+ * The next fire time of each scheme with a saved reminder (reminders table) sits in a
+ * min-heap ordered by time. Only the head is armed with AlarmManager, always under the same
+ * requestCode, so re-arming replaces the previous alarm. When it fires, every reminder due
+ * in that window is handed back to EmiReminderReceiver for one grouped notification, and the
+ * alarm is re-armed for the new head. Reminders sharing a time cost one wake-up, not one each.
+ *
+ * Entries are checked again when they reach the head: a scheme paid, deleted or switched off
+ * since it was queued is skipped or moved to its real next date.
+ *
+ * The due date each scheme is queued for is also written to reminders.next_due_key, so a
+ * rebuild (cold process, boot, clock or time zone change) is one query over the reminders
+ * table without loading any schedule. Thanks to the check above a stale key only costs an
+ * early wake-up.
+ *
+ * Every method reads the database: call them on FinanceRepository's write thread.
+ */
+public final class ReminderScheduler {
+
+    static final String ACTION_WAKE = "com.expensemanager.action.REMINDER_WAKE";
+
+    // One PendingIntent for the whole schedule
+    private static final int REQUEST_CODE = 1001;
+
+    // Reminders due this close after the alarm are delivered with it
+    private static final long WINDOW_MILLIS = 60_000L;
+
+    // Doze may deliver an allow-while-idle alarm this late; still counts as on time
+    private static final long MAX_LATENESS_MILLIS = 15 * 60_000L;
+
+    /** Next fire time of one scheme's reminder. */
+    public static final class Due {
+        public final long time;          // epoch millis
+        public final String kind;        // "BC" or "EMI"
+        public final String schemeId;
+        public final String schemeName;
+        public final int dueKey;         // yyyymmdd of the installment (see ScheduleDates)
+        final DatabaseHelper.ReminderConfig config;
+
+        Due(long time, String schemeName, int dueKey, DatabaseHelper.ReminderConfig config) {
+            this.time = time;
+            this.kind = config.kind;
+            this.schemeId = config.schemeId;
+            this.schemeName = schemeName;
+            this.dueKey = dueKey;
+            this.config = config;
+        }
+    }
+
+    private static final PriorityQueue<Due> queue =
+            new PriorityQueue<>(16, (a, b) -> Long.compare(a.time, b.time));
+    private static boolean built = false;
+
+    private ReminderScheduler() {
+    }
+
+    /** Save a reminder time for the scheme and (re)queue it. */
+    public static synchronized void setReminder(Context context, DatabaseHelper db,
+                                               String kind, String schemeId, int hour, int minute) {
+        db.saveReminder(kind, schemeId, hour, minute);
+        refresh(context, db, kind, schemeId);
+    }
+
+    /**
+     * Re-read one scheme's reminder after it changed (switched on/off, deleted, ...)
+     * and re-arm for whatever is now the earliest.
+     */
+    public static synchronized void refresh(Context context, DatabaseHelper db, String kind, String schemeId) {
+        if (!built) {
+            rebuild(context, db);
+            return;
+        }
+        queue.removeIf(d -> d.kind.equals(kind) && d.schemeId.equals(schemeId));
+        for (DatabaseHelper.ReminderConfig config : db.getActiveReminders(kind, schemeId)) {
+            queueNext(db, config, System.currentTimeMillis());
+        }
+        arm(context);
+    }
+
+    /**
+     * Requeue every reminder from the reminders table and arm the earliest. Also the entry
+     * point after boot and clock / time zone changes (ReminderBootReceiver): fire times are
+     * recomputed in the current zone from the stored due dates.
+     */
+    public static synchronized void rebuild(Context context, DatabaseHelper db) {
+        rebuildFrom(db, System.currentTimeMillis());
+        arm(context);
+    }
+
+    /**
+     * The alarm fired: take every reminder due by now (plus the window), queue each one's
+     * following installment, re-arm, and return what should be notified.
+     */
+    public static synchronized List<Due> onAlarm(Context context, DatabaseHelper db, long now) {
+        if (!built) {
+            // Cold process: nothing queued yet, so recompute including what this alarm was for
+            rebuildFrom(db, now - MAX_LATENESS_MILLIS);
+        }
+        List<Due> fired = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().time <= now + WINDOW_MILLIS) {
+            Due head = queue.poll();
+            // Still the same unpaid installment at the same time?
+            Due current = nextDue(db, head.config, head.time - 1);
+            if (current != null && current.time == head.time) {
+                fired.add(head);
+                queueNext(db, head.config, head.time);
+            } else {
+                queue(db, head.config, current);
+            }
+        }
+        arm(context);
+        return fired;
+    }
+
+    // O(schemes): a scheme's schedule is only loaded when its stored due date has passed
+    private static void rebuildFrom(DatabaseHelper db, long after) {
+        queue.clear();
+        for (DatabaseHelper.ReminderConfig config : db.getActiveReminders(null, null)) {
+            if (config.nextDueKey > 0) {
+                long time = reminderTime(config.nextDueKey, config.hour, config.minute);
+                if (time > after) {
+                    queue.add(new Due(time, config.schemeName, config.nextDueKey, config));
+                    continue;
+                }
+            }
+            queueNext(db, config, after);
+        }
+        built = true;
+    }
+
+    private static void queueNext(DatabaseHelper db, DatabaseHelper.ReminderConfig config, long after) {
+        queue(db, config, nextDue(db, config, after));
+    }
+
+    // Queue due (null = nothing left for this scheme) and remember its date in the table
+    private static void queue(DatabaseHelper db, DatabaseHelper.ReminderConfig config, Due due) {
+        db.setReminderNextDue(config.kind, config.schemeId, due == null ? 0 : due.dueKey);
+        if (due != null) {
+            queue.add(due);
+        }
+    }
+
+    /**
+     * First unpaid installment of the scheme whose reminder time is after {@code after},
+     * or null if there is none (all paid, scheme gone or its reminder switched off).
+     *
+     * Not answered from DueIndex: that is ordered by day across every scheme, so one scheme's
+     * next installment is no cheaper to find there, and the alarm usually runs in a cold
+     * process where hydrating both stores costs more than this single-scheme read.
+     */
+    private static Due nextDue(DatabaseHelper db, DatabaseHelper.ReminderConfig config, long after) {
+        InstallmentScheme s = findScheme(db, config.kind, config.schemeId);
+        if (s == null || !s.reminderEnabled) return null;
+        for (int i = s.paid.nextUnpaid(); i >= 0 && i < s.schedule.length; i = s.paid.nextUnpaid(i + 1)) {
+            long time = reminderTime(s.schedule[i], config.hour, config.minute);
+            if (time > after) {
+                return new Due(time, s.name, s.schedule[i], config);
+            }
+        }
+        return null;
+    }
+
+    // The store when it is hydrated, otherwise a single-scheme read
+    private static InstallmentScheme findScheme(DatabaseHelper db, String kind, String schemeId) {
+        if (BcStore.KIND.equals(kind)) {
+            return BcStore.isLoaded()
+                    ? BcStore.findSchemeById(schemeId)
+                    : db.getScheme(BcStore.KIND, schemeId, BcStore.BcScheme::new);
+        } else if (EmiStore.KIND.equals(kind)) {
+            return EmiStore.isLoaded()
+                    ? EmiStore.findSchemeById(schemeId)
+                    : db.getScheme(EmiStore.KIND, schemeId, EmiStore.EmiScheme::new);
+        }
+        return null;
+    }
+
+    // Fire ON the due date at the chosen time
+    private static long reminderTime(int dueKey, int hour, int minute) {
+        Calendar cal = ScheduleDates.toCalendar(dueKey);
+        cal.set(Calendar.HOUR_OF_DAY, hour);
+        cal.set(Calendar.MINUTE, minute);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    // Arm the single alarm for the head of the queue, or cancel it when nothing is left
+    private static void arm(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+
+        Intent intent = new Intent(context, EmiReminderReceiver.class);
+        intent.setAction(ACTION_WAKE);
+        PendingIntent pi = PendingIntent.getBroadcast(
+                context,
+                REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        Due head = queue.peek();
+        if (head == null) {
+            alarmManager.cancel(pi);
+        } else {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, head.time, pi);
+        }
+    }
+}
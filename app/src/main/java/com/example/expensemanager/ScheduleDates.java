@@ -0,0 +1,136 @@
+package com.expensemanager;
+
+import java.util.Calendar;
+
+/**
+ * Installment dates packed as yyyymmdd ints (e.g. 05/03/2025 -> 20250305).
+ * Schedules are parsed once when a scheme is loaded or generated; matching an
+ * entry's month/year is then a binary search over the sorted keys instead of a
+ * split + parseInt per installment. dd/MM/yyyy strings are only built for display
+ * and for the installments.due_date column.
+ */
+public final class ScheduleDates {
+
+    private ScheduleDates() {
+    }
+
+    public static int key(int year, int month, int day) {
+        return year * 10000 + month * 100 + day;
+    }
+
+    public static int year(int key) {
+        return key / 10000;
+    }
+
+    public static int month(int key) {
+        return (key / 100) % 100;
+    }
+
+    public static int day(int key) {
+        return key % 100;
+    }
+
+    /**
+     * Parse "dd/MM/yyyy" (or "dd-MM-yyyy" from old data) into a key.
+     * Returns 0 for anything unparseable; 0 sorts first and never matches a real month.
+     */
+    public static int parse(String date) {
+        if (date == null) return 0;
+        int[] parts = new int[3];
+        int part = 0;
+        int digits = 0;
+        for (int i = 0; i < date.length(); i++) {
+            char c = date.charAt(i);
+            if (c >= '0' && c <= '9') {
+                parts[part] = parts[part] * 10 + (c - '0');
+                digits++;
+            } else if ((c == '/' || c == '-') && digits > 0 && part < 2) {
+                part++;
+                digits = 0;
+            } else {
+                return 0;
+            }
+        }
+        if (part != 2 || digits == 0) return 0;
+        int day = parts[0], month = parts[1], year = parts[2];
+        if (day < 1 || day > 31 || month < 1 || month > 12) return 0;
+        return key(year, month, day);
+    }
+
+    /** Key -> "dd/MM/yyyy". */
+    public static String format(int key) {
+        if (key <= 0) return "";
+        char[] out = new char[10];
+        write2(out, 0, day(key));
+        out[2] = '/';
+        write2(out, 3, month(key));
+        out[5] = '/';
+        int y = year(key);
+        out[6] = (char) ('0' + (y / 1000) % 10);
+        out[7] = (char) ('0' + (y / 100) % 10);
+        out[8] = (char) ('0' + (y / 10) % 10);
+        out[9] = (char) ('0' + y % 10);
+        return new String(out);
+    }
+
+    private static void write2(char[] out, int at, int value) {
+        out[at] = (char) ('0' + value / 10);
+        out[at + 1] = (char) ('0' + value % 10);
+    }
+
+    /**
+     * Days since 1970-01-01 (proleptic Gregorian), so dates can be compared and
+     * subtracted as plain ints. Pure arithmetic; no Calendar or time zone involved.
+     */
+    public static int epochDay(int key) {
+        int y = year(key);
+        int m = month(key);
+        int d = day(key);
+        if (m <= 2) y--;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + d - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /** Today's epochDay in the device time zone. */
+    public static int todayEpochDay() {
+        return epochDay(fromCalendar(Calendar.getInstance()));
+    }
+
+    public static int fromCalendar(Calendar c) {
+        return key(c.get(Calendar.YEAR), c.get(Calendar.MONTH) + 1, c.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /** Calendar at 00:00 local time on the key's date. */
+    public static Calendar toCalendar(int key) {
+        Calendar c = Calendar.getInstance();
+        c.clear();
+        c.set(year(key), month(key) - 1, day(key));
+        return c;
+    }
+
+    /**
+     * Index of the first key falling in the given month, or -1 if none does.
+     * Keys must be ascending, which generated schedules always are.
+     */
+    public static int firstIndexInMonth(int[] keys, int year, int month) {
+        int lo = 0;
+        int hi = keys.length;
+        int first = key(year, month, 0);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < first) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < keys.length && isInMonth(keys[lo], year, month) ? lo : -1;
+    }
+
+    public static boolean isInMonth(int key, int year, int month) {
+        return key / 100 == year * 100 + month;
+    }
+}
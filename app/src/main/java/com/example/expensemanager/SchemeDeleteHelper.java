@@ -89,9 +89,8 @@ public class SchemeDeleteHelper {
 
                     // Remove selected schemes by id
                     for (String id : idsToDelete) {
-                        BcStore.removeSchemeById(id);
+                        BcStore.removeSchemeById(context, id);
                     }
-                    BcStore.save(context);
 
                     Toast.makeText(context, "Selected BC schemes deleted", Toast.LENGTH_SHORT).show();
                 })
@@ -146,9 +145,8 @@ public class SchemeDeleteHelper {
                     }
 
                     for (String id : idsToDelete) {
-                        EmiStore.removeSchemeById(id);
+                        EmiStore.removeSchemeById(context, id);
                     }
-                    EmiStore.save(context);
 
                     Toast.makeText(context, "Selected EMI schemes deleted", Toast.LENGTH_SHORT).show();
                 })
@@ -0,0 +1,334 @@
+package com.expensemanager;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary tab list: the month cards flattened into one RecyclerView of
+ * heading / month header / entry row / month total / grand total items.
+ * Only the rows on screen are inflated and they are recycled while scrolling,
+ * instead of building a CardView tree for every month up front.
+ *
+ * The item lists are built by the static build* methods, which touch no views and
+ * run on a FinanceRepository thread. After a write, replaceMonth() swaps in just the
+ * affected month card.
+ */
+public class SummaryAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    public static final int TYPE_ROW = 0;          // row ids are transaction ids
+    public static final int TYPE_HEADING = 1;
+    public static final int TYPE_MONTH_HEADER = 2;
+    public static final int TYPE_MONTH_TOTAL = 3;
+    public static final int TYPE_GRAND_TOTAL = 4;
+
+    private static final int COLOR_INCOME = 0xFF388E3C;
+    private static final int COLOR_EXPENSE = 0xFFF44336;
+    private static final int COLOR_CATEGORY = 0xFF262651;
+
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun",
+            "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    /** One flattened list item. */
+    public static final class Item {
+        final int viewType;
+        final long stableId;
+        final int period;           // year * 100 + month of the card it belongs to, 0 outside cards
+        final String text;          // heading, month label or formatted total
+        final int color;            // heading colour
+        final Transaction txn;      // TYPE_ROW only
+        final boolean lastInMonth;  // TYPE_ROW: no divider under the last row of a card
+        final long total;           // TYPE_MONTH_TOTAL, paise
+        final Long balance;         // TYPE_MONTH_TOTAL: Salary/Commission chip, or null
+
+        private Item(int viewType, long key, int period, String text, int color, Transaction txn,
+                     boolean lastInMonth, long total, Long balance) {
+            this.viewType = viewType;
+            // non-row items get the view type in the top byte so they never collide with row ids
+            this.stableId = viewType == TYPE_ROW ? key : ((long) viewType << 56) | key;
+            this.period = period;
+            this.text = text;
+            this.color = color;
+            this.txn = txn;
+            this.lastInMonth = lastInMonth;
+            this.total = total;
+            this.balance = balance;
+        }
+
+        static Item text(int viewType, String text, int color) {
+            return new Item(viewType, 0, 0, text, color, null, false, 0, null);
+        }
+    }
+
+    private List<Item> items = new ArrayList<>();
+    private String category;    // category view: keep a grand total at the end
+
+    public SummaryAdapter() {
+        setHasStableIds(true);
+    }
+
+    /** Replace the whole list; category is the filter for buildCategoryItems() lists, else null. */
+    public void setItems(List<Item> items, String category) {
+        this.items = new ArrayList<>(items);
+        this.category = category;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Swap one month card for a freshly built section (from buildMonthSection); an empty
+     * section removes the card. Cards stay in ascending year/month order, and the category
+     * grand total is recomputed from the month totals.
+     */
+    public void replaceMonth(int period, List<Item> section) {
+        if (items.isEmpty()) return;   // nothing shown yet
+
+        int start = -1;
+        int end = -1;
+        int insertAt = -1;
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (insertAt < 0 && item.viewType == TYPE_MONTH_HEADER && item.period > period) {
+                insertAt = i;
+            }
+            if (item.period == period) {
+                if (start < 0) start = i;
+                end = i + 1;
+            }
+        }
+
+        if (start >= 0) {
+            int oldCount = end - start;
+            items.subList(start, end).clear();
+            items.addAll(start, section);
+            int common = Math.min(oldCount, section.size());
+            notifyItemRangeChanged(start, common);
+            if (section.size() > oldCount) {
+                notifyItemRangeInserted(start + common, section.size() - oldCount);
+            } else if (oldCount > section.size()) {
+                notifyItemRangeRemoved(start + common, oldCount - section.size());
+            }
+        } else if (!section.isEmpty()) {
+            if (insertAt < 0) {
+                insertAt = items.size();
+                if (items.get(insertAt - 1).viewType == TYPE_GRAND_TOTAL) insertAt--;
+            }
+            items.addAll(insertAt, section);
+            notifyItemRangeInserted(insertAt, section.size());
+        }
+
+        if (category != null) {
+            updateGrandTotal();
+        }
+    }
+
+    private void updateGrandTotal() {
+        int last = items.size() - 1;
+        boolean hasGrandTotal = items.get(last).viewType == TYPE_GRAND_TOTAL;
+        long allTotal = 0;
+        boolean anyMonth = false;
+        for (Item item : items) {
+            if (item.viewType == TYPE_MONTH_TOTAL) {
+                allTotal += item.total;
+                anyMonth = true;
+            }
+        }
+        if (!anyMonth) {
+            if (hasGrandTotal) {
+                items.remove(last);
+                notifyItemRemoved(last);
+            }
+        } else if (hasGrandTotal) {
+            items.set(last, grandTotal(category, allTotal));
+            notifyItemChanged(last);
+        } else {
+            items.add(grandTotal(category, allTotal));
+            notifyItemInserted(items.size() - 1);
+        }
+    }
+
+    // ---- list building (no view access) ----
+
+    /** Income / Expenses view: every month of every year, newest entries first inside a month. */
+    public static List<Item> buildMonthItems(String type, Map<String, Map<String, List<Transaction>>> byYear) {
+        List<Item> out = new ArrayList<>();
+        boolean income = "income".equals(type);
+        out.add(Item.text(TYPE_HEADING, income ? "Income" : "Expenses", income ? COLOR_INCOME : COLOR_EXPENSE));
+        for (String year : byYear.keySet()) {
+            Map<String, List<Transaction>> byMonth = byYear.get(year);
+            for (String month : byMonth.keySet()) {
+                addMonth(out, year, month, byMonth.get(month), null);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Single-category view. balances maps "year-month" to the chip value shown under the
+     * month total (Salary / Commission only); the list ends with the category's grand total.
+     */
+    public static List<Item> buildCategoryItems(String category,
+                                                Map<String, Map<String, List<Transaction>>> byYear,
+                                                Map<String, Long> balances) {
+        List<Item> out = new ArrayList<>();
+        out.add(Item.text(TYPE_HEADING, category, COLOR_CATEGORY));
+        long allTotal = 0;
+        for (String year : byYear.keySet()) {
+            Map<String, List<Transaction>> byMonth = byYear.get(year);
+            for (String month : byMonth.keySet()) {
+                allTotal += addMonth(out, year, month, byMonth.get(month), balances.get(year + "-" + month));
+            }
+        }
+        if (!byYear.isEmpty()) {
+            out.add(grandTotal(category, allTotal));
+        }
+        return out;
+    }
+
+    /** One month card (header, rows, total) for replaceMonth(); empty when txns is empty. */
+    public static List<Item> buildMonthSection(String year, String month, List<Transaction> txns, Long balance) {
+        List<Item> out = new ArrayList<>();
+        addMonth(out, year, month, txns, balance);
+        return out;
+    }
+
+    // Appends header, rows and total for one month card; returns the month total
+    private static long addMonth(List<Item> out, String year, String month, List<Transaction> txns, Long balance) {
+        if (txns == null || txns.isEmpty()) return 0;
+        int period = DatabaseHelper.parseIntOrZero(year) * 100 + DatabaseHelper.parseIntOrZero(month);
+        out.add(new Item(TYPE_MONTH_HEADER, period, period, getMonthLabel(month) + " " + year,
+                0, null, false, 0, null));
+        long total = 0;
+        for (int i = 0; i < txns.size(); i++) {
+            Transaction txn = txns.get(i);
+            out.add(new Item(TYPE_ROW, txn.id, period, null, 0, txn, i == txns.size() - 1, 0, null));
+            total += txn.amount;
+        }
+        out.add(new Item(TYPE_MONTH_TOTAL, period, period, "Total: ₹" + Money.format(total),
+                0, null, false, total, balance));
+        return total;
+    }
+
+    private static Item grandTotal(String category, long allTotal) {
+        return Item.text(TYPE_GRAND_TOTAL, "Total (" + category + "): ₹" + Money.format(allTotal), 0);
+    }
+
+    static String getMonthLabel(String monthNumber) {
+        try {
+            int month = Integer.parseInt(monthNumber);
+            if (month >= 1 && month <= 12) return MONTHS[month - 1];
+        } catch (Exception ignored) {}
+        return "Month";
+    }
+
+    // "yyyy-MM-dd HH:mm:ss" -> "dd-MM-yy"
+    static String formatDate(String dateRaw) {
+        try {
+            String[] parts = dateRaw.split(" ");
+            String date = parts[0];
+            String[] ymd = date.split("-");
+            if (ymd.length == 3) {
+                String yy = ymd[0].substring(2);
+                return ymd[2] + "-" + ymd[1] + "-" + yy;
+            }
+        } catch (Exception e) {}
+        return dateRaw;
+    }
+
+    // ---- RecyclerView.Adapter ----
+
+    @Override
+    public int getItemViewType(int position) {
+        return items.get(position).viewType;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return items.get(position).stableId;
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        switch (viewType) {
+            case TYPE_ROW:
+                return new RowViewHolder(inflater.inflate(R.layout.item_summary_row, parent, false));
+            case TYPE_MONTH_TOTAL:
+                return new TotalViewHolder(inflater.inflate(R.layout.item_summary_total, parent, false));
+            case TYPE_MONTH_HEADER:
+                return new TextViewHolder(inflater.inflate(R.layout.item_summary_month_header, parent, false));
+            case TYPE_GRAND_TOTAL:
+                return new TextViewHolder(inflater.inflate(R.layout.item_summary_grand_total, parent, false));
+            default:
+                return new TextViewHolder(inflater.inflate(R.layout.item_summary_heading, parent, false));
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        Item item = items.get(position);
+        if (holder instanceof RowViewHolder) {
+            RowViewHolder vh = (RowViewHolder) holder;
+            vh.tvAmount.setText("₹" + Money.format(item.txn.amount));
+            vh.tvNote.setText(item.txn.note);
+            vh.tvNote.setSelected(true);  // marquee
+            vh.tvDate.setText(formatDate(item.txn.date));
+            vh.divider.setVisibility(item.lastInMonth ? View.GONE : View.VISIBLE);
+        } else if (holder instanceof TotalViewHolder) {
+            TotalViewHolder vh = (TotalViewHolder) holder;
+            vh.tvTotal.setText(item.text);
+            if (item.balance != null) {
+                vh.tvBalance.setText("Balance: ₹" + Money.format(item.balance));
+                vh.tvBalance.setVisibility(View.VISIBLE);
+            } else {
+                vh.tvBalance.setVisibility(View.GONE);
+            }
+        } else {
+            TextViewHolder vh = (TextViewHolder) holder;
+            vh.text.setText(item.text);
+            if (item.viewType == TYPE_HEADING) {
+                vh.text.setTextColor(item.color);
+            }
+        }
+    }
+
+    static class TextViewHolder extends RecyclerView.ViewHolder {
+        TextView text;
+        TextViewHolder(View itemView) {
+            super(itemView);
+            text = itemView.findViewById(R.id.tv_summary_text);
+        }
+    }
+
+    static class RowViewHolder extends RecyclerView.ViewHolder {
+        TextView tvAmount, tvNote, tvDate;
+        View divider;
+        RowViewHolder(View itemView) {
+            super(itemView);
+            tvAmount = itemView.findViewById(R.id.tv_summary_amount);
+            tvNote = itemView.findViewById(R.id.tv_summary_note);
+            tvDate = itemView.findViewById(R.id.tv_summary_date);
+            divider = itemView.findViewById(R.id.v_summary_divider);
+        }
+    }
+
+    static class TotalViewHolder extends RecyclerView.ViewHolder {
+        TextView tvTotal, tvBalance;
+        TotalViewHolder(View itemView) {
+            super(itemView);
+            tvTotal = itemView.findViewById(R.id.tv_summary_total);
+            tvBalance = itemView.findViewById(R.id.tv_summary_balance);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.expensemanager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.text.InputType;
-import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
@@ -11,21 +10,38 @@ import android.view.ViewGroup;
 import android.widget.*;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.widget.Toolbar;
-import androidx.cardview.widget.CardView;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.progressindicator.CircularProgressIndicator;
 import java.util.*;
 
 public class SummaryFragment extends Fragment {
-    private DatabaseHelper db;
-    private LinearLayout monthlyCardsContainer;
+    private static final String TAG_TOTALS = "summary_totals";
+    private static final String TAG_YEARS = "summary_years";
+    private static final String TAG_CARDS = "summary_cards";
+    private static final String TAG_CATEGORIES = "summary_categories";
+    private static final String TAG_MONTH_PREFIX = "summary_month_";
+    private static final String TAG_DUES = "summary_dues";
+    // BC / EMI card: overdue installments plus those due within this many days
+    private static final int DUE_WINDOW_DAYS = 7;
+    private static final int MAX_DUE_LINES = 5;
+
+    private FinanceRepository repository;
+    private SummaryAdapter summaryAdapter;
     private Spinner spinnerMonth, spinnerYear;
     private TextView tvIncome, tvExpenses, tvBalance;
+    private View dueCard;
+    private TextView tvDueTitle, tvDueList;
     private String selectedMonth = "All";
     private String selectedYear = "All";
     private String currentType = null; // No default: only show on selection
     private String currentCategoryFilter = null;
+    // Totals shown in the summary card; change events are applied to them as deltas
+    private long incomeTotal, expenseTotal;   // paise
+    private final Set<String> monthTags = new HashSet<>();
+    private final TransactionChange.Listener changeListener = this::onTransactionsChanged;
     private FloatingActionButton btnReset;
     private CircularProgressIndicator resetProgress;
     private Handler holdHandler = new Handler();
@@ -36,22 +52,25 @@ public class SummaryFragment extends Fragment {
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_summary, container, false);
 
-        db = new DatabaseHelper(getContext());
-        monthlyCardsContainer = view.findViewById(R.id.monthly_cards_container);
+        repository = FinanceRepository.get(requireContext());
+        RecyclerView rvSummary = view.findViewById(R.id.rv_summary);
+        rvSummary.setLayoutManager(new LinearLayoutManager(requireContext()));
+        summaryAdapter = new SummaryAdapter();
+        rvSummary.setAdapter(summaryAdapter);
         tvIncome = view.findViewById(R.id.tv_income_total);
         tvExpenses = view.findViewById(R.id.tv_expenses_total);
         tvBalance = view.findViewById(R.id.tv_balance);
+        dueCard = view.findViewById(R.id.due_card);
+        tvDueTitle = view.findViewById(R.id.tv_due_title);
+        tvDueList = view.findViewById(R.id.tv_due_list);
         Toolbar toolbar = view.findViewById(R.id.summary_toolbar);
         spinnerMonth = view.findViewById(R.id.spinner_month);
         spinnerYear = view.findViewById(R.id.spinner_year);
         btnReset = view.findViewById(R.id.btn_reset);
         resetProgress = view.findViewById(R.id.reset_progress);
 
-        // Listen for refresh requests from other fragments
-        getParentFragmentManager().setFragmentResultListener("refresh_summary", this, (key, bundle) -> {
-            updateSummaryCard();
-            updateMonthCards();
-        });
+        // Inserts and deletes from any tab arrive here once committed
+        repository.addChangeListener(changeListener);
 
         // Month spinner setup and listener
         final String[] monthLabels = {"All", "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
@@ -69,7 +88,6 @@ public class SummaryFragment extends Fragment {
         // Year spinner setup and listener
         List<String> yearList = new ArrayList<>();
         yearList.add("All");
-        yearList.addAll(db.getAllYears());
         ArrayAdapter<String> yearAdapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item, yearList);
         yearAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerYear.setAdapter(yearAdapter);
@@ -80,6 +98,11 @@ public class SummaryFragment extends Fragment {
             }
             @Override public void onNothingSelected(AdapterView<?> parent) {}
         });
+        repository.loadYears(TAG_YEARS, years -> {
+            if (!isAdded()) return;
+            yearList.addAll(years);
+            yearAdapter.notifyDataSetChanged();
+        });
 
         toolbar.inflateMenu(R.menu.menu_summary);
         toolbar.setOnMenuItemClickListener(item -> {
@@ -159,10 +182,10 @@ public class SummaryFragment extends Fragment {
             .setPositiveButton("OK", (dialog, which) -> {
                 String pass = input.getText().toString();
                 if ("1234".equals(pass)) {
-                    db.clearAllData();
-                    Toast.makeText(getContext(), "All data erased", Toast.LENGTH_SHORT).show();
-                    updateSummaryCard();
-                    updateMonthCards();
+                    repository.clearAllData(result -> {
+                        if (!isAdded()) return;
+                        Toast.makeText(getContext(), "All data erased", Toast.LENGTH_SHORT).show();
+                    });
                 } else {
                     Toast.makeText(getContext(), "Incorrect password", Toast.LENGTH_SHORT).show();
                 }
@@ -176,12 +199,13 @@ public class SummaryFragment extends Fragment {
             Toast.makeText(getContext(), "Select Income or Expenses first", Toast.LENGTH_SHORT).show();
             return;
         }
-        ArrayList<Transaction> all = db.getAllTransactions(currentType);
-        Set<String> categories = new LinkedHashSet<>();
-        for (Transaction t : all) {
-            if (t.category != null && !t.category.trim().isEmpty()) categories.add(t.category);
-        }
-        final List<String> categoryList = new ArrayList<>(categories);
+        repository.loadCategories(TAG_CATEGORIES, currentType, categoryList -> {
+            if (!isAdded()) return;
+            showCategoryFilterDialog(categoryList);
+        });
+    }
+
+    private void showCategoryFilterDialog(List<String> categoryList) {
         if (categoryList.isEmpty()) {
             Toast.makeText(getContext(), "No categories found.", Toast.LENGTH_SHORT).show();
             return;
@@ -199,178 +223,151 @@ public class SummaryFragment extends Fragment {
     }
 
     private void updateSummaryCard() {
-        double income = 0, expenses = 0;
-        if (selectedYear.equals("All") && selectedMonth.equals("All")) {
-            income = db.getTotalByType("income");
-            expenses = db.getTotalByType("expense");
-        } else if (!selectedYear.equals("All") && selectedMonth.equals("All")) {
-            income = getTotalForYear(selectedYear, "income");
-            expenses = getTotalForYear(selectedYear, "expense");
-        } else if (!selectedYear.equals("All") && !selectedMonth.equals("All")) {
-            income = getTotalForYearMonth(selectedYear, selectedMonth, "income");
-            expenses = getTotalForYearMonth(selectedYear, selectedMonth, "expense");
-        } else if (selectedYear.equals("All") && !selectedMonth.equals("All")) {
-            income = getTotalForMonthType(selectedMonth, "income");
-            expenses = getTotalForMonthType(selectedMonth, "expense");
+        // "All" on either spinner is a wildcard for sumAmount
+        String year = selectedYear.equals("All") ? null : selectedYear;
+        String month = selectedMonth.equals("All") ? null : selectedMonth;
+        // Ordered behind pending writes, so deltas from later change events apply cleanly on top
+        repository.submitOrdered(TAG_TOTALS, db -> new long[]{
+                db.sumAmount("income", year, month, null, null),
+                db.sumAmount("expense", year, month, null, null)
+        }, totals -> {
+            if (!isAdded()) return;
+            incomeTotal = totals[0];
+            expenseTotal = totals[1];
+            showSummaryTotals(incomeTotal, expenseTotal);
+        });
+    }
+
+    private void onTransactionsChanged(TransactionChange change) {
+        // Adding or deleting a BC / EMI entry ticks or unticks an installment
+        updateDueCard();
+
+        if (change.kind == TransactionChange.CLEARED) {
+            updateSummaryCard();
+            refreshCards();
+            return;
+        }
+
+        applyTotalsDelta(change);
+
+        if (currentType == null) return;
+        if (repository.isPending(TAG_CARDS)) {
+            // A full load is in flight and may have missed this write; restart it
+            refreshCards();
+            return;
+        }
+        Set<Integer> periods = new TreeSet<>();
+        for (Transaction t : change.rows) {
+            if (affectsCards(t)) periods.add(TransactionChange.period(t));
+        }
+        for (int period : periods) {
+            reloadMonth(period);
         }
-        double balance = income - expenses;
-        tvIncome.setText("Total Income: " + String.format(Locale.US, "%.2f", income));
-        tvExpenses.setText("Total Expenses: " + String.format(Locale.US, "%.2f", expenses));
-        tvBalance.setText("Balance: " + String.format(Locale.US, "%.2f", balance));
-        tvBalance.setTextColor(0xFFFFB300); // Orange
-        tvBalance.setTypeface(tvBalance.getTypeface(), android.graphics.Typeface.BOLD);
     }
 
-    private double getTotalForYear(String year, String type) {
-        double total = 0;
-        Map<String, List<Transaction>> byMonth = db.getTransactionsByTypeAndYearGroupedByMonth(type, year);
-        if (byMonth != null) {
-            for (List<Transaction> txns : byMonth.values()) {
-                for (Transaction txn : txns) total += txn.amount;
+    private void applyTotalsDelta(TransactionChange change) {
+        // A pending totals read was queued after this write and already includes it
+        if (repository.isPending(TAG_TOTALS)) return;
+        for (Transaction t : change.rows) {
+            if (!selectedYear.equals("All") && !selectedYear.equals(t.year)) continue;
+            if (!selectedMonth.equals("All") && !selectedMonth.equals(t.month)) continue;
+            if ("income".equals(t.type)) {
+                incomeTotal += change.sign() * t.amount;
+            } else if ("expense".equals(t.type)) {
+                expenseTotal += change.sign() * t.amount;
             }
         }
-        return total;
+        showSummaryTotals(incomeTotal, expenseTotal);
     }
-    private double getTotalForYearMonth(String year, String month, String type) {
-        double total = 0;
-        Map<String, List<Transaction>> byMonth = db.getTransactionsByTypeAndYearGroupedByMonth(type, year);
-        List<Transaction> txns = byMonth != null ? byMonth.get(month) : null;
-        if (txns != null) for (Transaction txn : txns) total += txn.amount;
-        return total;
+
+    // Whether a changed row shows up in (or feeds the balance chip of) a visible month card
+    private boolean affectsCards(Transaction t) {
+        if (currentCategoryFilter == null) {
+            return currentType.equals(t.type);
+        }
+        if (currentType.equals(t.type) && currentCategoryFilter.equals(t.category)) {
+            return true;
+        }
+        String sourceType = sourceTypeFor(currentType, currentCategoryFilter);
+        return sourceType != null && "expense".equals(t.type) && sourceType.equals(t.sourceType);
     }
-    private double getTotalForMonthType(String month, String type) {
-        double total = 0;
-        List<String> years = db.getAllYears();
-        for (String year : years) {
-            List<Transaction> txns = db.getTransactionsByTypeAndYearGroupedByMonth(type, year).get(month);
-            if (txns != null) {
-                for (Transaction txn : txns) total += txn.amount;
+
+    private void refreshCards() {
+        if (currentCategoryFilter != null) {
+            updateCategoryGroup();
+        } else {
+            updateMonthCards();
+        }
+    }
+
+    // Re-query and re-render a single month card
+    private void reloadMonth(int period) {
+        String type = currentType;
+        String category = currentCategoryFilter;
+        String tag = TAG_MONTH_PREFIX + period;
+        monthTags.add(tag);
+        repository.submit(tag, db -> loadMonthSection(db, type, category, period / 100, period % 100), section -> {
+            if (!isAdded()) return;
+            // the user switched type or category meanwhile
+            if (!type.equals(currentType) || !Objects.equals(category, currentCategoryFilter)) return;
+            summaryAdapter.replaceMonth(period, section);
+        });
+    }
+
+    // Runs on a repository read thread: no view access here
+    private static List<SummaryAdapter.Item> loadMonthSection(DatabaseHelper db, String type, String category,
+                                                             int year, int month) {
+        List<Transaction> txns = db.getTransactionsByTypeYearMonth(type, year, month, category);
+        Long balance = null;
+        if (category != null) {
+            String sourceType = sourceTypeFor(type, category);
+            if (sourceType != null && !txns.isEmpty()) {
+                DatabaseHelper.CategoryMonthTotal m =
+                        db.getCategoryMonthTotal(type, category, sourceType, year, month);
+                if (m != null) {
+                    balance = m.categoryTotal - m.sourceExpenseTotal;
+                }
             }
         }
-        return total;
+        return SummaryAdapter.buildMonthSection(String.valueOf(year), String.valueOf(month), txns, balance);
     }
 
-    private void updateMonthCards() {
-        monthlyCardsContainer.removeAllViews();
+    // Salary / Commission incomes show a balance after the expenses paid from that source
+    private static String sourceTypeFor(String type, String category) {
+        if (!"income".equals(type)) return null;
+        return "Salary".equals(category) ? "SALARY"
+                : "Commission".equals(category) ? "COMMISSION" : null;
+    }
 
+    private void showSummaryTotals(long income, long expenses) {
+        long balance = income - expenses;
+        tvIncome.setText("Total Income: " + Money.format(income));
+        tvExpenses.setText("Total Expenses: " + Money.format(expenses));
+        tvBalance.setText("Balance: " + Money.format(balance));
+        tvBalance.setTextColor(0xFFFFB300); // Orange
+        tvBalance.setTypeface(tvBalance.getTypeface(), android.graphics.Typeface.BOLD);
+    }
+
+    private void updateMonthCards() {
         if (currentType == null) {
             // Don't show any Income/Expenses entry cards until picked by user
+            repository.cancel(TAG_CARDS);
+            summaryAdapter.setItems(new ArrayList<>(), null);
             return;
         }
 
         currentCategoryFilter = null;
-        TextView heading = new TextView(getContext());
-        heading.setText(currentType.equals("income") ? "Income" : "Expenses");
-        heading.setTextColor(currentType.equals("income") ? 0xFF388E3C : 0xFFF44336);
-        heading.setTextAlignment(View.TEXT_ALIGNMENT_CENTER);
-        heading.setTextSize(22);
-        heading.setTypeface(null, android.graphics.Typeface.BOLD);
-        LinearLayout.LayoutParams headingParams = new LinearLayout.LayoutParams(
-            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-        headingParams.setMargins(0, 20, 0, 18);
-        monthlyCardsContainer.addView(heading, headingParams);
-
-        List<String> years = db.getAllYears();
-        for (String year : years) {
-            Map<String, List<Transaction>> byMonth = db.getTransactionsByTypeAndYearGroupedByMonth(currentType, year);
-            for (String month : byMonth.keySet()) {
-                List<Transaction> txns = byMonth.get(month);
-                if (txns == null || txns.isEmpty()) continue;
-                CardView card = new CardView(getContext());
-                LinearLayout.LayoutParams cardParams = new LinearLayout.LayoutParams(
-                        ViewGroup.LayoutParams.MATCH_PARENT,
-                        ViewGroup.LayoutParams.WRAP_CONTENT
-                );
-                cardParams.setMargins(0, 0, 0, 32);
-                card.setLayoutParams(cardParams);
-                card.setRadius(32);
-                card.setCardElevation(6);
-                card.setUseCompatPadding(true);
-                card.setCardBackgroundColor(android.graphics.Color.TRANSPARENT);
-                card.setPreventCornerOverlap(false);
-                card.setBackgroundResource(R.drawable.bg_summary_card);
-
-                LinearLayout listLayout = new LinearLayout(getContext());
-                listLayout.setOrientation(LinearLayout.VERTICAL);
-                listLayout.setPadding(32, 32, 32, 32);
-                listLayout.setBackgroundColor(0xFFF5F5F5);
-
-                // MONTH-YEAR (centered, bold)
-                TextView monthHeading = new TextView(getContext());
-                monthHeading.setText(getMonthLabel(month) + " " + year);
-                monthHeading.setTextSize(16);
-                monthHeading.setTextColor(0xFF22223A);
-                monthHeading.setTextAlignment(View.TEXT_ALIGNMENT_CENTER);
-                monthHeading.setTypeface(null, android.graphics.Typeface.BOLD);
-                monthHeading.setPadding(0, 0, 0, 12);
-                listLayout.addView(monthHeading);
-
-                double total = 0;
-                for (int i = 0; i < txns.size(); i++) {
-                    Transaction txn = txns.get(i);
-
-                    LinearLayout entryRow = new LinearLayout(getContext());
-                    entryRow.setOrientation(LinearLayout.HORIZONTAL);
-                    entryRow.setLayoutParams(new LinearLayout.LayoutParams(
-                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
-                    entryRow.setPadding(0, 8, 0, 8);
-
-                    // Amount (bold)
-                    TextView amountView = new TextView(getContext());
-                    amountView.setText("₹" + txn.amount);
-                    amountView.setTypeface(null, android.graphics.Typeface.BOLD);
-                    amountView.setTextColor(0xFF444444);
-                    amountView.setTextSize(14);
-                    amountView.setLayoutParams(new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1.2f));
-
-                    // Note (center)
-                    TextView noteView = new TextView(getContext());
-                    noteView.setText(txn.note);
-                    noteView.setTextColor(0xFF444444);
-                    noteView.setTextSize(14);
-                    noteView.setSingleLine(true);
-                    noteView.setEllipsize(android.text.TextUtils.TruncateAt.MARQUEE);
-                    noteView.setMarqueeRepeatLimit(-1);
-                    noteView.setSelected(true);
-                    noteView.setHorizontalFadingEdgeEnabled(true);
-                    noteView.setLayoutParams(new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1.4f));
-
-                    // Date (DD-MM-YY)
-                    TextView dateView = new TextView(getContext());
-                    dateView.setText(formatDate(txn.date));
-                    dateView.setTextColor(0xFF888888);
-                    dateView.setTextSize(14);
-                    dateView.setGravity(Gravity.END);
-                    dateView.setLayoutParams(new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1.2f));
-
-                    entryRow.addView(amountView);
-                    entryRow.addView(noteView);
-                    entryRow.addView(dateView);
-
-                    listLayout.addView(entryRow);
-                    total += txn.amount;
-
-                    if (i < txns.size() - 1) {
-                        View divider = new View(getContext());
-                        LinearLayout.LayoutParams dividerParams = new LinearLayout.LayoutParams(
-                                ViewGroup.LayoutParams.MATCH_PARENT, 1);
-                        divider.setLayoutParams(dividerParams);
-                        divider.setBackgroundColor(0x33000000);
-                        listLayout.addView(divider);
-                    }
-                }
-                TextView totalTv = new TextView(getContext());
-                totalTv.setText(String.format(Locale.US, "Total: ₹%.2f", total));
-                totalTv.setTextSize(16);
-                totalTv.setTextColor(0xFFFFB300);
-                totalTv.setTypeface(null, android.graphics.Typeface.BOLD);
-                totalTv.setPadding(0, 20, 0, 0);
-                totalTv.setTextAlignment(View.TEXT_ALIGNMENT_CENTER);
-                listLayout.addView(totalTv);
-                card.addView(listLayout);
-                monthlyCardsContainer.addView(card);
+        String type = currentType;
+        repository.submit(TAG_CARDS, db -> {
+            Map<String, Map<String, List<Transaction>>> byYear = new LinkedHashMap<>();
+            for (String year : db.getAllYears()) {
+                byYear.put(year, db.getTransactionsByTypeAndYearGroupedByMonth(type, year));
             }
-        }
+            return SummaryAdapter.buildMonthItems(type, byYear);
+        }, items -> {
+            if (!isAdded()) return;
+            summaryAdapter.setItems(items, null);
+        });
     }
 
     // Show entries grouped and filtered by category
@@ -380,271 +377,109 @@ public class SummaryFragment extends Fragment {
             return;
         }
 
-        monthlyCardsContainer.removeAllViews();
-
-        // Category Header
-        TextView heading = new TextView(getContext());
-        heading.setText(currentCategoryFilter);
-        heading.setTextColor(0xFF262651);
-        heading.setTextAlignment(View.TEXT_ALIGNMENT_CENTER);
-        heading.setTextSize(22);
-        heading.setTypeface(null, android.graphics.Typeface.BOLD);
-        LinearLayout.LayoutParams headingParams = new LinearLayout.LayoutParams(
-            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-        headingParams.setMargins(0, 20, 0, 18);
-        monthlyCardsContainer.addView(heading, headingParams);
-
-        // Get all transactions by month+year, filtered by selected category+type
-        List<String> years = db.getAllYears();
-        Map<String, Map<String, List<Transaction>>> categoryGrouped = new LinkedHashMap<>();
-        for (String year : years) {
-            Map<String, List<Transaction>> byMonth = db.getTransactionsByTypeAndYearGroupedByMonth(currentType, year);
-            for (String month : byMonth.keySet()) {
-                List<Transaction> txnsForMonth = byMonth.get(month);
-                for (Transaction txn : txnsForMonth) {
-                    if (txn.category != null && txn.category.equals(currentCategoryFilter)) {
-                        if (!categoryGrouped.containsKey(year))
-                            categoryGrouped.put(year, new LinkedHashMap<>());
-                        if (!categoryGrouped.get(year).containsKey(month))
-                            categoryGrouped.get(year).put(month, new ArrayList<>());
-                        categoryGrouped.get(year).get(month).add(txn);
-                    }
-                }
-            }
-        }
-
-        double allTotal = 0;
-
-        for (String year : categoryGrouped.keySet()) {
-            Map<String, List<Transaction>> monthsMap = categoryGrouped.get(year);
-            for (String month : monthsMap.keySet()) {
-                List<Transaction> txns = monthsMap.get(month);
-                if (txns == null || txns.isEmpty()) continue;
-
-                CardView card = new CardView(getContext());
-                LinearLayout.LayoutParams cardParams = new LinearLayout.LayoutParams(
-                        ViewGroup.LayoutParams.MATCH_PARENT,
-                        ViewGroup.LayoutParams.WRAP_CONTENT
-                );
-                cardParams.setMargins(0, 0, 0, 32);
-                card.setLayoutParams(cardParams);
-                card.setRadius(32);
-                card.setCardElevation(6);
-                card.setUseCompatPadding(true);
-                card.setCardBackgroundColor(android.graphics.Color.TRANSPARENT);
-                card.setPreventCornerOverlap(false);
-                card.setBackgroundResource(R.drawable.bg_summary_card);
-
-                LinearLayout listLayout = new LinearLayout(getContext());
-                listLayout.setOrientation(LinearLayout.VERTICAL);
-                listLayout.setPadding(32, 32, 32, 32);
-                listLayout.setBackgroundColor(0xFFF5F5F5);
-
-                // Month-Year header
-                TextView monthHeading = new TextView(getContext());
-                monthHeading.setText(getMonthLabel(month) + " " + year);
-                monthHeading.setTextSize(16);
-                monthHeading.setTextColor(0xFF22223A);
-                monthHeading.setTextAlignment(View.TEXT_ALIGNMENT_CENTER);
-                monthHeading.setTypeface(null, android.graphics.Typeface.BOLD);
-                monthHeading.setPadding(0, 0, 0, 12);
-                listLayout.addView(monthHeading);
-
-                double monthlyTotal = 0;
-                for (int i = 0; i < txns.size(); i++) {
-                    Transaction txn = txns.get(i);
-
-                    LinearLayout entryRow = new LinearLayout(getContext());
-                    entryRow.setOrientation(LinearLayout.HORIZONTAL);
-                    entryRow.setLayoutParams(new LinearLayout.LayoutParams(
-                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
-                    entryRow.setPadding(0, 8, 0, 8);
-
-                    // Amount
-                    TextView amountView = new TextView(getContext());
-                    amountView.setText("₹" + txn.amount);
-                    amountView.setTypeface(null, android.graphics.Typeface.BOLD);
-                    amountView.setTextColor(0xFF444444);
-                    amountView.setTextSize(14);
-                    amountView.setLayoutParams(new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1.2f));
-
-                    // Note
-                    TextView noteView = new TextView(getContext());
-                    noteView.setText(txn.note);
-                    noteView.setTextColor(0xFF444444);
-                    noteView.setTextSize(14);
-                    noteView.setSingleLine(true);
-                    noteView.setEllipsize(android.text.TextUtils.TruncateAt.MARQUEE);
-                    noteView.setMarqueeRepeatLimit(-1);
-                    noteView.setSelected(true);
-                    noteView.setHorizontalFadingEdgeEnabled(true);
-                    noteView.setLayoutParams(new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1.4f));
-
-                    // Date (DD-MM-YY)
-                    TextView dateView = new TextView(getContext());
-                    dateView.setText(formatDate(txn.date));
-                    dateView.setTextColor(0xFF888888);
-                    dateView.setTextSize(14);
-                    dateView.setGravity(Gravity.END);
-                    dateView.setLayoutParams(new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1.2f));
-
-                    entryRow.addView(amountView);
-                    entryRow.addView(noteView);
-                    entryRow.addView(dateView);
-
-                    listLayout.addView(entryRow);
-                    monthlyTotal += txn.amount;
-
-                    if (i < txns.size() - 1) {
-                        View divider = new View(getContext());
-                        LinearLayout.LayoutParams dividerParams = new LinearLayout.LayoutParams(
-                                ViewGroup.LayoutParams.MATCH_PARENT, 1);
-                        divider.setLayoutParams(dividerParams);
-                        divider.setBackgroundColor(0x33000000);
-                        listLayout.addView(divider);
-                    }
-                }
-
-                // Yellow Total line
-                TextView totalTv = new TextView(getContext());
-                totalTv.setText(String.format(Locale.US, "Total: ₹%.2f", monthlyTotal));
-                totalTv.setTextSize(16);
-                totalTv.setTextColor(0xFFFFB300);
-                totalTv.setTypeface(null, android.graphics.Typeface.BOLD);
-                totalTv.setPadding(0, 16, 0, 0);
-                totalTv.setGravity(Gravity.CENTER_HORIZONTAL);
-                listLayout.addView(totalTv);
-
-                // For Salary category show Balance AFTER Salary‑source expenses
-                if ("Salary".equals(currentCategoryFilter)) {
-                    double incomeSalary = getIncomeTotalForCategoryMonthYear("Salary", month, year);
-                    double expenseFromSalarySource = getExpenseTotalFromSourceForMonthYear("SALARY", month, year);
-                    double salaryBalance = incomeSalary - expenseFromSalarySource;
-
-                    TextView balanceTv = new TextView(getContext());
-                    balanceTv.setText(String.format(Locale.US, "Balance: ₹%.2f", salaryBalance));
-                    balanceTv.setTextSize(15);
-                    balanceTv.setTextColor(0xFFFFFFFF); // green
-                    balanceTv.setTypeface(null, android.graphics.Typeface.BOLD);
-                    balanceTv.setPadding(24, 8, 24, 8);
-                    balanceTv.setBackgroundResource(R.drawable.bg_balance_chip);
-                    balanceTv.setGravity(Gravity.CENTER_HORIZONTAL);
-                        LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(
-                            ViewGroup.LayoutParams.WRAP_CONTENT,
-                            ViewGroup.LayoutParams.WRAP_CONTENT);
-                    lp.gravity = Gravity.CENTER_HORIZONTAL;
-                    lp.topMargin = 8;
-                    balanceTv.setLayoutParams(lp);
-                    listLayout.addView(balanceTv);
-                }
-                // For Commission category show Balance AFTER Commission‑source expenses
-                else if ("Commission".equals(currentCategoryFilter)) {
-                    double incomeCommission = getIncomeTotalForCategoryMonthYear("Commission", month, year);
-                    double expenseFromCommissionSource = getExpenseTotalFromSourceForMonthYear("COMMISSION", month, year);
-                    double commissionBalance = incomeCommission - expenseFromCommissionSource;
-
-                    TextView balanceTv = new TextView(getContext());
-                    balanceTv.setText(String.format(Locale.US, "Balance: ₹%.2f", commissionBalance));
-                    balanceTv.setTextSize(15);
-                    balanceTv.setTextColor(0xFFFFFFFF); // green
-                    balanceTv.setTypeface(null, android.graphics.Typeface.BOLD);
-                    balanceTv.setPadding(24, 8, 24, 8);
-                    balanceTv.setBackgroundResource(R.drawable.bg_balance_chip);
-                    balanceTv.setGravity(Gravity.CENTER_HORIZONTAL);
-                        LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(
-                            ViewGroup.LayoutParams.WRAP_CONTENT,
-                            ViewGroup.LayoutParams.WRAP_CONTENT);
-                    lp.gravity = Gravity.CENTER_HORIZONTAL;
-                    lp.topMargin = 8;
-                    balanceTv.setLayoutParams(lp);
-                    listLayout.addView(balanceTv);
-                }
+        String type = currentType;
+        String category = currentCategoryFilter;
+        repository.submit(TAG_CARDS, db -> {
+            CategoryGroup group = loadCategoryGroup(db, type, category);
+            return SummaryAdapter.buildCategoryItems(category, group.byYear, group.balances);
+        }, items -> {
+            if (!isAdded()) return;
+            summaryAdapter.setItems(items, category);
+        });
+    }
 
-                card.addView(listLayout);
-                monthlyCardsContainer.addView(card);
+    // Result of the background half of updateCategoryGroup
+    private static class CategoryGroup {
+        final Map<String, Map<String, List<Transaction>>> byYear = new LinkedHashMap<>();
+        // "year-month" -> Salary / Commission balance chip value
+        final Map<String, Long> balances = new HashMap<>();
+    }
 
-                allTotal += monthlyTotal;
+    // Runs on a repository read thread: no view access here
+    private static CategoryGroup loadCategoryGroup(DatabaseHelper db, String type, String category) {
+        CategoryGroup group = new CategoryGroup();
+
+        // The category's entries straight off the (type, category) index, grouped by year and month
+        Map<String, Map<String, List<Transaction>>> categoryGrouped = group.byYear;
+        for (Transaction txn : db.getTransactionsByTypeAndCategory(type, category)) {
+            Map<String, List<Transaction>> byMonth = categoryGrouped.get(txn.year);
+            if (byMonth == null) {
+                byMonth = new LinkedHashMap<>();
+                categoryGrouped.put(txn.year, byMonth);
+            }
+            List<Transaction> txns = byMonth.get(txn.month);
+            if (txns == null) {
+                txns = new ArrayList<>();
+                byMonth.put(txn.month, txns);
             }
+            txns.add(txn);
         }
 
-        if (!categoryGrouped.isEmpty()) {
-            TextView totalsHeading = new TextView(getContext());
-            totalsHeading.setText(String.format(Locale.US, "Total (%s): ₹%.2f", currentCategoryFilter, allTotal));
-            totalsHeading.setTextColor(0xFF388E3C);
-            totalsHeading.setTextAlignment(View.TEXT_ALIGNMENT_CENTER);
-            totalsHeading.setTextSize(17);
-            totalsHeading.setTypeface(null, android.graphics.Typeface.BOLD);
-            LinearLayout.LayoutParams totalParams = new LinearLayout.LayoutParams(
-                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-            totalParams.setMargins(0, 0, 0, 26);
-            monthlyCardsContainer.addView(totalsHeading, totalParams);
+        // For Salary / Commission show Balance AFTER expenses paid from that source,
+        // every month from one grouped rollup query
+        String sourceType = sourceTypeFor(type, category);
+        if (sourceType != null) {
+            for (DatabaseHelper.CategoryMonthTotal m : db.getCategoryMonthTotals(type, category, sourceType)) {
+                group.balances.put(m.year + "-" + m.month, m.categoryTotal - m.sourceExpenseTotal);
+            }
         }
+        return group;
     }
 
-    private String getMonthLabel(String monthNumber) {
-        try {
-            int month = Integer.parseInt(monthNumber);
-            String[] months = {"Jan", "Feb", "Mar", "Apr", "May", "Jun",
-                    "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
-            if (month >= 1 && month <= 12) return months[month - 1];
-        } catch (Exception ignored) {}
-        return "Month";
+    @Override
+    public void onResume() {
+        super.onResume();
+        // Schemes are added and removed from other tabs without a change event
+        updateDueCard();
     }
 
-    private String formatDate(String dateRaw) {
-        try {
-            String[] parts = dateRaw.split(" ");
-            String date = parts[0];
-            String[] ymd = date.split("-");
-            if (ymd.length == 3) {
-                String yy = ymd[0].substring(2);
-                return ymd[2] + "-" + ymd[1] + "-" + yy;
-            }
-        } catch (Exception e) {}
-        return dateRaw;
+    private void updateDueCard() {
+        repository.loadUpcomingDues(TAG_DUES, DUE_WINDOW_DAYS, dues -> {
+            if (!isAdded()) return;
+            showDueCard(dues);
+        });
     }
 
-    // Helpers for per‑category totals
-    public double getIncomeTotalForCategoryMonthYear(String category, String month, String year) {
-        double total = 0;
-        Map<String, List<Transaction>> byMonth = db.getTransactionsByTypeAndYearGroupedByMonth("income", year);
-        if (byMonth == null) return 0;
-        List<Transaction> txns = byMonth.get(month);
-        if (txns == null) return 0;
-        for (Transaction t : txns) {
-            if (category.equals(t.category)) total += t.amount;
+    private void showDueCard(List<DueIndex.Entry> dues) {
+        if (dues.isEmpty()) {
+            dueCard.setVisibility(View.GONE);
+            return;
         }
-        return total;
-    }
-
-    // New: expenses summed by source_type (radio), not by category
-    private double getExpenseTotalFromSourceForMonthYear(String sourceType, String month, String year) {
-        double total = 0;
-        Map<String, List<Transaction>> byMonth = db.getTransactionsByTypeAndYearGroupedByMonth("expense", year);
-        if (byMonth == null) return 0;
-        List<Transaction> txns = byMonth.get(month);
-        if (txns == null) return 0;
-        for (Transaction t : txns) {
-            if (sourceType.equals(t.sourceType)) total += t.amount;
+        int today = ScheduleDates.todayEpochDay();
+        int overdue = 0;
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < dues.size(); i++) {
+            DueIndex.Entry e = dues.get(i);
+            if (e.epochDay < today) overdue++;
+            if (i < MAX_DUE_LINES) {
+                if (lines.length() > 0) lines.append('\n');
+                lines.append(e.epochDay < today ? "Overdue · " : "")
+                        .append(e.kind).append(' ').append(e.schemeName)
+                        .append(" – ").append(ScheduleDates.format(e.dueKey));
+                if (e.amount > 0) lines.append("  ₹").append(e.amount);
+            }
         }
-        return total;
-    }
-
-    public double getExpenseTotalForCategoryMonthYear(String category, String month, String year) {
-        double total = 0;
-        Map<String, List<Transaction>> byMonth = db.getTransactionsByTypeAndYearGroupedByMonth("expense", year);
-        if (byMonth == null) return 0;
-        List<Transaction> txns = byMonth.get(month);
-        if (txns == null) return 0;
-        for (Transaction t : txns) {
-            if (category.equals(t.category)) total += t.amount;
+        if (dues.size() > MAX_DUE_LINES) {
+            lines.append("\n+").append(dues.size() - MAX_DUE_LINES).append(" more");
         }
-        return total;
+        tvDueTitle.setText("Overdue: " + overdue + "   Due this week: " + (dues.size() - overdue));
+        tvDueList.setText(lines);
+        dueCard.setVisibility(View.VISIBLE);
     }
 
-    public double getBalanceForCategoryMonthYear(String category, String month, String year) {
-        double inc = getIncomeTotalForCategoryMonthYear(category, month, year);
-        double exp = getExpenseTotalForCategoryMonthYear(category, month, year);
-        return inc - exp;
+    @Override
+    public void onDestroyView() {
+        repository.cancel(TAG_DUES);
+        repository.cancel(TAG_TOTALS);
+        repository.cancel(TAG_YEARS);
+        repository.cancel(TAG_CARDS);
+        repository.cancel(TAG_CATEGORIES);
+        for (String tag : monthTags) {
+            repository.cancel(tag);
+        }
+        monthTags.clear();
+        repository.removeChangeListener(changeListener);
+        holdHandler.removeCallbacksAndMessages(null);
+        super.onDestroyView();
     }
 }
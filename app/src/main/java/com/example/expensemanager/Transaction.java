@@ -10,11 +10,11 @@ public class Transaction {
     public String category;
     public String date;
     public String sourceType;   // SALARY / COMMISSION / OTHER (can be null)
-    public double amount;
+    public long amount;         // paise, see Money
 
     // Existing constructor (kept for backward compatibility, no id)
     public Transaction(String type,
-                       double amount,
+                       long amount,
                        String note,
                        String month,
                        String year,
@@ -25,7 +25,7 @@ public class Transaction {
 
     // Existing constructor with sourceType (no id)
     public Transaction(String type,
-                       double amount,
+                       long amount,
                        String note,
                        String month,
                        String year,
@@ -38,7 +38,7 @@ public class Transaction {
     // NEW main constructor with id + sourceType
     public Transaction(long id,
                        String type,
-                       double amount,
+                       long amount,
                        String note,
                        String month,
                        String year,
@@ -55,4 +55,10 @@ public class Transaction {
         this.date = date;
         this.sourceType = sourceType;
     }
+
+    // Copy, e.g. to keep a row handed out by DatabaseHelper.forEachTransaction
+    public Transaction(Transaction other) {
+        this(other.id, other.type, other.amount, other.note, other.month, other.year,
+                other.category, other.date, other.sourceType);
+    }
 }
@@ -28,7 +28,7 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
         Transaction item = items.get(position);
-        holder.tvAmount.setText(String.valueOf(item.amount));
+        holder.tvAmount.setText(Money.format(item.amount));
         holder.tvNote.setText(item.note);
         holder.tvDate.setText(item.date);
     }
@@ -0,0 +1,39 @@
+package com.expensemanager;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What one committed write did to the transactions table, published by DatabaseHelper
+ * on the main thread. Rows carry id, type, amount, month, year, category and source_type,
+ * so screens can apply the change as a delta instead of re-reading everything.
+ */
+public final class TransactionChange {
+
+    public static final int INSERTED = 1;
+    public static final int DELETED = 2;
+    public static final int CLEARED = 3;   // clearAllData() or a rollup rebuild: reload all; rows is empty
+
+    /** Registered through DatabaseHelper / FinanceRepository; always called on the main thread. */
+    public interface Listener {
+        void onTransactionsChanged(TransactionChange change);
+    }
+
+    public final int kind;
+    public final List<Transaction> rows;
+
+    TransactionChange(int kind, List<Transaction> rows) {
+        this.kind = kind;
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    /** +1 for inserted rows, -1 for deleted ones. */
+    public int sign() {
+        return kind == INSERTED ? 1 : -1;
+    }
+
+    /** year * 100 + month of a row, the same key SummaryAdapter uses for month cards. */
+    public static int period(Transaction t) {
+        return DatabaseHelper.parseIntOrZero(t.year) * 100 + DatabaseHelper.parseIntOrZero(t.month);
+    }
+}
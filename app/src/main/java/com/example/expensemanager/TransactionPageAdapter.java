@@ -0,0 +1,142 @@
+package com.expensemanager;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.CheckedTextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ListView adapter for the entry delete dialog that grows one page at a time.
+ * Rows are streamed by DatabaseHelper.forEachTransactionInPage and kept only as a
+ * compact Row (id, date, label); the next page is requested when the list scrolls near
+ * the end. Checked state is kept by transaction id, so it survives appends and never
+ * depends on list positions.
+ */
+public class TransactionPageAdapter extends BaseAdapter {
+
+    /** Asked for the page after (beforeDate, beforeId); answer with addPage() or pageFailed(). */
+    public interface PageLoader {
+        void loadPage(String beforeDate, long beforeId);
+    }
+
+    /** Columns Row.of() reads; pass as the projection when loading pages. */
+    public static final String PROJECTION = "id, type, note, month, year, date";
+
+    /** What the dialog keeps per entry: the keyset (date, id) and the display label. */
+    public static final class Row {
+        final long id;
+        final String date;
+        final String label;
+
+        private Row(long id, String date, String label) {
+            this.id = id;
+            this.date = date;
+            this.label = label;
+        }
+
+        /** Build from a streamed row; reads only PROJECTION columns and does not keep t. */
+        public static Row of(Transaction t) {
+            // Display string like "2025-12  |  EXPENSE  |  Note"
+            return new Row(t.id, t.date, t.year + "-" + t.month + "  |  "
+                    + (t.type == null ? "" : t.type.toUpperCase())
+                    + "  |  " + (t.note == null ? "" : t.note));
+        }
+    }
+
+    // Start loading the next page this many rows before the end is reached
+    private static final int PREFETCH_ROWS = 10;
+
+    private final LayoutInflater inflater;
+    private final int pageSize;
+    private final List<Row> items = new ArrayList<>();
+    private final LongHashSet checkedIds = new LongHashSet();
+    private PageLoader loader;
+    private boolean loading = false;
+    private boolean exhausted = false;
+
+    public TransactionPageAdapter(Context context, int pageSize) {
+        this.inflater = LayoutInflater.from(context);
+        this.pageSize = pageSize;
+    }
+
+    public void setPageLoader(PageLoader loader) {
+        this.loader = loader;
+    }
+
+    /** Append a loaded page; a short page means there is nothing older left. */
+    public void addPage(List<Row> page) {
+        loading = false;
+        items.addAll(page);
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        notifyDataSetChanged();
+    }
+
+    /** The page request failed; the next scroll asks for it again. */
+    public void pageFailed() {
+        loading = false;
+    }
+
+    /** Call from the list's scroll listener with the last visible position. */
+    public void onScrolledTo(int lastVisiblePosition) {
+        if (loading || exhausted || loader == null || items.isEmpty()) return;
+        if (lastVisiblePosition < items.size() - PREFETCH_ROWS) return;
+
+        Row last = items.get(items.size() - 1);
+        if (last.date == null) {
+            // undated rows sort last; there is no key to continue from
+            exhausted = true;
+            return;
+        }
+        loading = true;
+        loader.loadPage(last.date, last.id);
+    }
+
+    public void toggle(int position) {
+        long id = getItemId(position);
+        if (!checkedIds.remove(id)) {
+            checkedIds.add(id);
+        }
+        notifyDataSetChanged();
+    }
+
+    public LongHashSet getCheckedIds() {
+        return checkedIds;
+    }
+
+    @Override
+    public int getCount() {
+        return items.size();
+    }
+
+    @Override
+    public Row getItem(int position) {
+        return items.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return items.get(position).id;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        CheckedTextView row = (CheckedTextView) (convertView != null ? convertView
+                : inflater.inflate(android.R.layout.simple_list_item_multiple_choice, parent, false));
+        Row item = items.get(position);
+        row.setText(item.label);
+        row.setChecked(checkedIds.contains(item.id));
+        return row;
+    }
+}
@@ -0,0 +1,87 @@
+package com.expensemanager;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns rows of the transactions table into Transaction objects.
+ * Column ordinals are looked up once when the mapper is created for a cursor; every row
+ * after that is read by position. Columns missing from the projection map to null / 0,
+ * so the same mapper serves FULL, LITE, LIST and ad-hoc selects.
+ */
+public final class TransactionRowMapper {
+
+    /** Every column a Transaction carries. Use instead of SELECT *. */
+    public static final String FULL = "id, type, amount, note, month, year, category, source_type, date";
+
+    /**
+     * Projection-limited mode: just id, amount and date. With a type/year/month filter this
+     * is answered from idx_transactions_type_period alone, without touching the table.
+     */
+    public static final String LITE = "id, amount, date";
+
+    /** LITE plus the note: everything a month list row (Income / Expenses, Summary) shows. */
+    public static final String LIST = LITE + ", note";
+
+    private final int id;
+    private final int type;
+    private final int amount;
+    private final int note;
+    private final int month;
+    private final int year;
+    private final int category;
+    private final int sourceType;
+    private final int date;
+
+    public TransactionRowMapper(Cursor cursor) {
+        id = cursor.getColumnIndexOrThrow("id");
+        type = cursor.getColumnIndex("type");
+        amount = cursor.getColumnIndex("amount");
+        note = cursor.getColumnIndex("note");
+        month = cursor.getColumnIndex("month");
+        year = cursor.getColumnIndex("year");
+        category = cursor.getColumnIndex("category");
+        sourceType = cursor.getColumnIndex("source_type");
+        date = cursor.getColumnIndex("date");
+    }
+
+    /** The row the cursor is currently on, as a new Transaction. */
+    public Transaction map(Cursor cursor) {
+        Transaction row = new Transaction(0L, null, 0, null, null, null, null, null, null);
+        fill(cursor, row);
+        return row;
+    }
+
+    /** Overwrite every field of row with the current cursor row (for reusing one instance). */
+    public void fill(Cursor cursor, Transaction row) {
+        row.id = cursor.getLong(id);
+        row.type = string(cursor, type);
+        row.amount = amount < 0 ? 0 : cursor.getLong(amount);
+        row.note = string(cursor, note);
+        row.month = string(cursor, month);
+        row.year = string(cursor, year);
+        row.category = string(cursor, category);
+        row.date = string(cursor, date);
+        row.sourceType = string(cursor, sourceType);
+    }
+
+    /** Map every remaining row and close the cursor. */
+    public static List<Transaction> readAll(Cursor cursor) {
+        try {
+            List<Transaction> list = new ArrayList<>(Math.max(cursor.getCount(), 0));
+            TransactionRowMapper mapper = new TransactionRowMapper(cursor);
+            while (cursor.moveToNext()) {
+                list.add(mapper.map(cursor));
+            }
+            return list;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String string(Cursor cursor, int index) {
+        return index < 0 ? null : cursor.getString(index);
+    }
+}